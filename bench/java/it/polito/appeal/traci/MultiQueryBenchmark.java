@@ -0,0 +1,124 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import it.polito.appeal.traci.benchmark.Messages;
+import it.polito.appeal.traci.protocol.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the round trip of a {@link MultiQuery} of "get vehicle speed"
+ * queries over a loopback TCP connection, against an in-process server that
+ * answers every request with the same canned response. The time spent by
+ * SUMO is thus left out, and only the client-side costs (serialization,
+ * parsing, value caching) plus the loopback latency are measured.
+ * <p>
+ * It is in this package because queries can't be made outside a connection
+ * otherwise.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultiQueryBenchmark {
+
+	@Param({ "1", "64", "512" })
+	public int batchSize;
+
+	private ServerSocket serverSocket;
+	private Thread server;
+	private Socket socket;
+	private MultiQuery multi;
+
+	@Setup
+	public void setup() throws IOException {
+		String[] ids = Messages.vehicleIDs(batchSize);
+		final byte[] response = Messages.readDoubleResponse(
+				Constants.CMD_GET_VEHICLE_VARIABLE, Constants.VAR_SPEED, ids, 13.9);
+
+		serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		server = new Thread("canned TraCI server") {
+			@Override
+			public void run() {
+				try {
+					Socket client = serverSocket.accept();
+					client.setTcpNoDelay(true);
+					DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+					while (true) {
+						int length = in.readInt();
+						in.skipBytes(length - 4);
+						out.write(response);
+						out.flush();
+					}
+				} catch (IOException e) {
+					// the client closed the connection
+				}
+			}
+		};
+		server.setDaemon(true);
+		server.start();
+
+		socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+		socket.setTcpNoDelay(true);
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+		multi = new MultiQuery(dos, dis);
+		for (String id : ids) {
+			multi.add(new ReadObjectVarQuery.DoubleQ(dis, dos,
+					Constants.CMD_GET_VEHICLE_VARIABLE, id, Constants.VAR_SPEED));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException, InterruptedException {
+		socket.close();
+		serverSocket.close();
+		server.join();
+	}
+
+	@Benchmark
+	public MultiQuery roundTrip() throws IOException {
+		multi.run();
+		return multi;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.benchmark;
+
+import it.polito.appeal.traci.protocol.Command;
+import it.polito.appeal.traci.protocol.Constants;
+import it.polito.appeal.traci.protocol.RequestMessage;
+import it.polito.appeal.traci.protocol.ResponseMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.uniluebeck.itm.tcpip.Storage;
+
+/**
+ * Measures the parsing of {@link Command}s and {@link ResponseMessage}s, and
+ * the serialization of {@link RequestMessage}s, with messages that contain a
+ * batch of "get vehicle speed" commands or responses.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageBenchmark {
+
+	@Param({ "1", "64", "512" })
+	public int batchSize;
+
+	private byte[] rawCommands;
+	private byte[] response;
+	private RequestMessage request;
+	private final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+	private final DataOutputStream sinkStream = new DataOutputStream(sink);
+
+	@Setup
+	public void setup() {
+		String[] ids = Messages.vehicleIDs(batchSize);
+
+		request = new RequestMessage();
+		for (String id : ids) {
+			Command cmd = new Command(Constants.CMD_GET_VEHICLE_VARIABLE);
+			cmd.content().writeUnsignedByte(Constants.VAR_SPEED);
+			cmd.content().writeStringASCII(id);
+			request.append(cmd);
+		}
+
+		Storage s = new Storage();
+		for (Command cmd : request.commands())
+			cmd.writeRawTo(s);
+		rawCommands = s.readBytes(s.size());
+
+		response = Messages.readDoubleResponse(Constants.CMD_GET_VEHICLE_VARIABLE,
+				Constants.VAR_SPEED, ids, 13.9);
+	}
+
+	@Benchmark
+	public int parseCommands() {
+		Storage s = Storage.wrap(rawCommands, 0, rawCommands.length);
+		int ids = 0;
+		while (s.validPos())
+			ids += new Command(s).id();
+		return ids;
+	}
+
+	@Benchmark
+	public ResponseMessage parseResponseMessage() throws IOException {
+		return new ResponseMessage(new DataInputStream(new ByteArrayInputStream(response)));
+	}
+
+	@Benchmark
+	public int writeRequestMessage() throws IOException {
+		sink.reset();
+		request.writeTo(sinkStream);
+		return sink.size();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.benchmark;
+
+import it.polito.appeal.traci.protocol.Command;
+import it.polito.appeal.traci.protocol.Constants;
+import it.polito.appeal.traci.protocol.StatusResponse;
+import de.uniluebeck.itm.tcpip.Storage;
+
+/**
+ * Builds the serialized messages used as input by the benchmarks.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+public final class Messages {
+
+	private Messages() {
+	}
+
+	/**
+	 * @param count
+	 * @return the IDs of <code>count</code> vehicles
+	 */
+	public static String[] vehicleIDs(int count) {
+		String[] ids = new String[count];
+		for (int i = 0; i < count; i++)
+			ids[i] = "veh" + i;
+		return ids;
+	}
+
+	/**
+	 * Builds a response message, length header included, that answers one
+	 * "get variable" command of type double for each of the given objects.
+	 * 
+	 * @param commandID
+	 *            the "get variable" command
+	 * @param varID
+	 * @param objectIDs
+	 * @param value
+	 *            the value of each object
+	 * @return the message
+	 */
+	public static byte[] readDoubleResponse(int commandID, int varID,
+			String[] objectIDs, double value) {
+		Storage body = new Storage();
+		for (String objectID : objectIDs) {
+			new StatusResponse(commandID).writeTo(body);
+			Command resp = new Command(commandID + 0x10);
+			resp.content().writeUnsignedByte(varID);
+			resp.content().writeStringASCII(objectID);
+			resp.content().writeUnsignedByte(Constants.TYPE_DOUBLE);
+			resp.content().writeDouble(value);
+			resp.writeRawTo(body);
+		}
+		return withLength(body);
+	}
+
+	/**
+	 * @param body
+	 * @return the content of the given storage, preceded by the length
+	 *         header of a message
+	 */
+	public static byte[] withLength(Storage body) {
+		Storage message = new Storage(body.size() + 4);
+		message.writeInt(body.size() + 4);
+		message.writeBytes(body);
+		return message.readBytes(message.size());
+	}
+}
@@ -0,0 +1,194 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.uniluebeck.itm.tcpip.Storage;
+import de.uniluebeck.itm.tcpip.StringPool;
+
+/**
+ * Measures the serialization and de-serialization of each primitive type
+ * with {@link Storage}. Each operation reads or writes {@value #COUNT}
+ * values; the results are per value.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StorageBenchmark {
+
+	private static final int COUNT = 1024;
+
+	private final Storage out = new Storage(COUNT * 16);
+
+	private byte[] bytes;
+	private byte[] ints;
+	private byte[] doubles;
+	private byte[] strings;
+	private StringPool pool;
+
+	@Setup
+	public void setup() {
+		Storage s = new Storage();
+		for (int i = 0; i < COUNT; i++)
+			s.writeByte((byte) i);
+		bytes = s.readBytes(s.size());
+
+		s = new Storage();
+		for (int i = 0; i < COUNT; i++)
+			s.writeInt(i);
+		ints = s.readBytes(s.size());
+
+		s = new Storage();
+		for (int i = 0; i < COUNT; i++)
+			s.writeDouble(i * 0.5);
+		doubles = s.readBytes(s.size());
+
+		/*
+		 * few distinct IDs, like those recurring in a simulation
+		 */
+		String[] ids = Messages.vehicleIDs(64);
+		s = new Storage();
+		for (int i = 0; i < COUNT; i++)
+			s.writeStringASCII(ids[i % ids.length]);
+		strings = s.readBytes(s.size());
+
+		pool = new StringPool();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public Storage writeByte() {
+		out.reset();
+		for (int i = 0; i < COUNT; i++)
+			out.writeByte((byte) i);
+		return out;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public Storage writeInt() {
+		out.reset();
+		for (int i = 0; i < COUNT; i++)
+			out.writeInt(i);
+		return out;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public Storage writeDouble() {
+		out.reset();
+		for (int i = 0; i < COUNT; i++)
+			out.writeDouble(i);
+		return out;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public Storage writeStringASCII() {
+		out.reset();
+		for (int i = 0; i < COUNT; i++)
+			out.writeStringASCII("veh0");
+		return out;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int readByte() {
+		Storage in = Storage.wrap(bytes, 0, bytes.length);
+		int sum = 0;
+		for (int i = 0; i < COUNT; i++)
+			sum += in.readByte();
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int readUnsignedByte() {
+		Storage in = Storage.wrap(bytes, 0, bytes.length);
+		int sum = 0;
+		for (int i = 0; i < COUNT; i++)
+			sum += in.readUnsignedByte();
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int readInt() {
+		Storage in = Storage.wrap(ints, 0, ints.length);
+		int sum = 0;
+		for (int i = 0; i < COUNT; i++)
+			sum += in.readInt();
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public double readDouble() {
+		Storage in = Storage.wrap(doubles, 0, doubles.length);
+		double sum = 0;
+		for (int i = 0; i < COUNT; i++)
+			sum += in.readDouble();
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readStringASCII(Blackhole bh) {
+		Storage in = Storage.wrap(strings, 0, strings.length);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(in.readStringASCII());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readStringASCIIPooled(Blackhole bh) {
+		Storage in = Storage.wrap(strings, 0, strings.length);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(in.readStringASCII(pool));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int matchStringASCII() {
+		Storage in = Storage.wrap(strings, 0, strings.length);
+		int matches = 0;
+		for (int i = 0; i < COUNT; i++) {
+			if (in.matchStringASCII("veh0"))
+				matches++;
+			else
+				in.skipBytes(in.readInt());
+		}
+		return matches;
+	}
+}
@@ -1,18 +1,12 @@
 package de.uniluebeck.itm.tcpip;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.ListIterator;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import java.util.RandomAccess;
 
 /*
  * Modifications by Enrico Gueli:
@@ -21,46 +15,65 @@ import org.apache.logging.log4j.Logger;
  * - toString() implementation
  * - standard comments converted to Javadoc
  * - getStorageList() made public (but read-only)
+ * - replaced the List<Byte> with a growable byte array; scalars are
+ *   (de)serialized in place, without intermediate streams
+ * - bulk readBytes()/writeBytes() and zero-copy slicing
+ * - ASCII strings can be matched or interned without decoding them
  */
 
 
 @SuppressWarnings("javadoc")
 public class Storage {
-	private List<Byte> storageList;
+	private static final int DEFAULT_CAPACITY = 32;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset US_ASCII = Charset.forName("US-ASCII");
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+	private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+	private static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+
+	/** The backing array. It may be shared with other storages. */
+	private byte[] buffer;
+	/** Index in {@link #buffer} of the first byte of this storage. */
+	private int offset;
+	/** Number of valid bytes, starting from {@link #offset}. */
+	private int size;
+	/** Read position, relative to {@link #offset}. */
 	private int position;
-	private ListIterator<Byte> listIt;
+	/**
+	 * If <code>true</code>, the backing array is not owned by this storage and
+	 * must be copied before writing to it.
+	 */
+	private boolean shared;
 
-	private Logger log = LogManager.getLogger();
-	
 	public Storage()
 	{
-		storageList = new ArrayList<Byte>();
-		init();
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty storage that can hold up to the given number of bytes
+	 * before growing.
+	 * @param initialCapacity
+	 */
+	public Storage(int initialCapacity)
+	{
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("capacity can't be negative");
+		buffer = new byte[initialCapacity];
 	}
 
 	public Storage(byte[] packet)
 	{
 		this(packet, 0, packet.length);
 	}
-	
-	public Storage(byte[] packet, int offset, int length) {
-		if (packet == null)
-			throw new NullPointerException("packet can't be null");
-		if (length > packet.length)
-			throw new IndexOutOfBoundsException("length exceeds packet length");
-		if (offset + length > packet.length)
-			throw new IndexOutOfBoundsException("content is outside the array");
-
-		storageList = new ArrayList<Byte>();
-
-		for (int i=offset; i < length; i++)
-		{
-			writeByte(packet[i]);
-		}
 
-		init();
+	public Storage(byte[] packet, int offset, int length) {
+		checkBounds(packet, offset, length);
+		buffer = Arrays.copyOfRange(packet, offset, offset + length);
+		size = length;
 	}
-	
+
 	public Storage(short[] packet)
 	{
 		this(packet, 0, packet.length);
@@ -71,33 +84,89 @@ public class Storage {
 	{
 		if (packet == null)
 			throw new NullPointerException("packet can't be null");
-		if (length > packet.length)
-			throw new IndexOutOfBoundsException("length exceeds packet length");
-		if (offset + length > packet.length)
+		if (offset < 0 || length < 0 || offset + length > packet.length)
 			throw new IndexOutOfBoundsException("content is outside the array");
 
-		storageList = new ArrayList<Byte>();
-		
-		for (int i=offset; i < length; i++)
-		{
-			writeByte(packet[i]);
-		}
-		
-		init();
+		buffer = new byte[length];
+		for (int i=0; i < length; i++)
+			buffer[i] = (byte) packet[offset + i];
+		size = length;
+	}
+
+	/**
+	 * Private constructor for views over an existing array.
+	 */
+	private Storage(byte[] buffer, int offset, int length, boolean shared) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.size = length;
+		this.shared = shared;
 	}
-	
+
+	/**
+	 * Returns a storage whose content is the given portion of an array. Unlike
+	 * the constructors, the array is not copied: it must not be modified
+	 * while the returned storage is in use. Writing to the returned storage
+	 * will never alter the array.
+	 *
+	 * @param packet
+	 * @param offset
+	 * @param length
+	 * @return a read view of the array
+	 */
+	public static Storage wrap(byte[] packet, int offset, int length) {
+		checkBounds(packet, offset, length);
+		return new Storage(packet, offset, length, true);
+	}
+
+	private static void checkBounds(byte[] packet, int offset, int length) {
+		if (packet == null)
+			throw new NullPointerException("packet can't be null");
+		if (offset < 0 || length < 0 || offset + length > packet.length)
+			throw new IndexOutOfBoundsException("content is outside the array");
+	}
+
 	public boolean validPos()
 	{
-		return (position < storageList.size()
+		return (position < size
 				&& position >= 0
-				&& storageList.size() != 0);
+				&& size != 0);
 	}
-	
+
 	public int position()
 	{
 		return position;
 	}
-	
+
+	/**
+	 * @return the number of bytes that can still be read
+	 */
+	public int remaining()
+	{
+		return size - position;
+	}
+
+	/**
+	 * Returns a storage made of the next <code>length</code> bytes of this one,
+	 * and advances the read position past them. No data is copied: the
+	 * returned storage shares the backing array with this one.
+	 *
+	 * @param length
+	 * @return the slice
+	 */
+	public Storage slice(int length) throws IllegalStateException
+	{
+		checkReadable(length, "slice");
+		Storage out = new Storage(buffer, offset + position, length, true);
+		/*
+		 * from now on, this storage must also copy-on-write, since the array
+		 * is referenced by the slice
+		 */
+		shared = true;
+		position += length;
+		return out;
+	}
+
 	/**
 	 * Write a byte value to the List
 	 * a signed value will be converted to its unsigned equivalent first
@@ -107,15 +176,16 @@ public class Storage {
 	{
 		writeByte((int)value);
 	}
-	
+
 	public void writeByte(int value) throws IllegalArgumentException
 	{
 		if (value < -128 || value > 127)
 			throw new IllegalArgumentException("Error writing byte: byte value may only range from -128 to 127.");
 
-		storageList.add(new Byte( (byte)(value) ));
+		ensureWritable(1);
+		buffer[offset + size++] = (byte) value;
 	}
-	
+
 	/**
 	 * Read a byte value from the List
 	 * @return the read byte as an Integer value (unsigned)
@@ -124,10 +194,20 @@ public class Storage {
 	{
 		if (!validPos())
 			throw new IllegalStateException("Error reading byte, invalid list position specified for reading: "+position);
-		
-		position++;
-		return (short) listIt.next();
-		
+
+		return buffer[offset + position++];
+	}
+
+	/**
+	 * Returns the unsigned byte found <code>distance</code> bytes after the
+	 * read position, without advancing it.
+	 * @param distance
+	 * @return the byte value (unsigned)
+	 */
+	public short peekUnsignedByte(int distance) throws IllegalStateException
+	{
+		checkReadable(distance + 1, "unsigned byte");
+		return (short) (buffer[offset + position + distance] & 0xFF);
 	}
 
 	public void writeUnsignedByte(short value) throws IllegalArgumentException
@@ -140,53 +220,33 @@ public class Storage {
 		if (value < 0 || value > 255)
 			throw new IllegalArgumentException("Error writing unsigned byte: byte value may only range from 0 to 255.");
 
-		// 0 -> 0
-		// 127 -> 127 
-		// 128 -> -128 
-		// 255 -> -1
-		
-		if (value > 127) storageList.add(new Byte( (byte)(value-256) ));
-		else storageList.add(new Byte( (byte)(value) ));
+		ensureWritable(1);
+		buffer[offset + size++] = (byte) value;
 	}
-	
+
 	public short readUnsignedByte() throws IllegalStateException
 	{
 		if (!validPos())
 			throw new IllegalStateException("Error reading unsigned byte, invalid list position specified for reading: "+position);
-		
-		// -128 -> 128 
-		// -1 -> 255
-		// 0 -> 0
-		// 127 -> 127 
 
-		position++;
-		return (short) ((listIt.next()+ 256) % 256);
-		
+		return (short) (buffer[offset + position++] & 0xFF);
 	}
 
-	
+
 	/**
 	 * Write a signed short value to the list
 	 * @param value the short value to be written
 	 */
 	public void writeShort(int value) throws IllegalArgumentException
 	{
-		ByteArrayOutputStream byteOut = new ByteArrayOutputStream(2);
-		DataOutputStream dataOut = new DataOutputStream(byteOut);
-		byte bytes[] = new byte[2]; 
-		
 		if (value < -32768 || value > 32768)
 			throw new IllegalArgumentException("Error writing short: short value may only range from -32768 to 32768.");
-		
-		try {
-			dataOut.writeShort(value);
-			dataOut.close();
-		} catch (IOException e) {
-			log.error(e);
-		}
-		bytes = byteOut.toByteArray();
-		for (int i=0; i<2; i++)
-			writeByte(bytes[i]);
+
+		ensureWritable(2);
+		int p = offset + size;
+		buffer[p    ] = (byte) (value >>> 8);
+		buffer[p + 1] = (byte) (value      );
+		size += 2;
 	}
 
 	/**
@@ -195,27 +255,12 @@ public class Storage {
 	 */
 	public int readShort() throws IllegalStateException
 	{
-		ByteArrayInputStream byteIn;
-		DataInputStream dataIn;
-		byte content[] = new byte[2];
-		int result = 0;
-		
-		for (int i=0; i<2; i++)
-		{
-			content[i] = (byte) readByte();
-		}
-		byteIn =  new ByteArrayInputStream(content);
-		dataIn = new DataInputStream(byteIn);
-		try {
-			result = dataIn.readShort();
-			dataIn.close();
-		} catch (IOException e) {
-			log.error(e);
-		}
-		
-		return result;
+		checkReadable(2, "short");
+		int p = offset + position;
+		position += 2;
+		return (short) (((buffer[p] & 0xFF) << 8) | (buffer[p + 1] & 0xFF));
 	}
-	
+
 	/**
 	 * Write an signed Integer to the list
 	 * the int value is being split up into 4 bytes in msb first order
@@ -223,20 +268,9 @@ public class Storage {
 	 */
 	public void writeInt(int value) throws IllegalArgumentException
 	{
-		ByteArrayOutputStream byteOut = new ByteArrayOutputStream(4);
-		DataOutputStream dataOut = new DataOutputStream(byteOut);
-		byte bytes[] = new byte[4]; 
-		
-		try {
-			dataOut.writeInt(value);
-			dataOut.close();
-		} catch (IOException e) {
-			log.error(e);
-		}
-		bytes = byteOut.toByteArray();
-		for (int i=0; i<4; i++)
-			writeByte(bytes[i]);
-		
+		ensureWritable(4);
+		putInt(offset + size, value);
+		size += 4;
 	}
 
 	/**
@@ -245,27 +279,12 @@ public class Storage {
 	 */
 	public int readInt() throws IllegalStateException
 	{
-		ByteArrayInputStream byteIn;
-		DataInputStream dataIn;
-		byte content[] = new byte[4];
-		int result = 0;
-		
-		for (int i=0; i<4; i++)
-		{
-			content[i] = (byte) readByte();
-		}
-		byteIn =  new ByteArrayInputStream(content);
-		dataIn = new DataInputStream(byteIn);
-		try {
-			result = dataIn.readInt();
-			dataIn.close();
-		} catch (IOException e) {
-			log.error(e);
-		}
-		
+		checkReadable(4, "int");
+		int result = getInt(offset + position);
+		position += 4;
 		return result;
 	}
-	
+
 	/**
 	 * Write a Float to the list
 	 * the float value is beeing split up into 4 bytes in msb first order
@@ -273,49 +292,21 @@ public class Storage {
 	 */
 	public void writeFloat(float value) throws IllegalArgumentException
 	{
-		ByteArrayOutputStream byteOut = new ByteArrayOutputStream(4);
-		DataOutputStream dataOut = new DataOutputStream(byteOut);
-		byte bytes[] = new byte[4]; 
-		
-		try {
-			dataOut.writeFloat(value);
-			dataOut.close();
-		} catch (IOException e) {
-			log.error(e);
-		}
-		bytes = byteOut.toByteArray();
-		for (int i=0; i<4; i++)
-			writeByte(bytes[i]);
-		
+		writeInt(Float.floatToIntBits(value));
 	}
-	
+
 	/**
 	 * Read a Float value, that was split up into 4 bytes
 	 * @return the read float value
 	 */
 	public float readFloat() throws IllegalStateException
 	{
-		ByteArrayInputStream byteIn;
-		DataInputStream dataIn;
-		byte content[] = new byte[4];
-		float result = 0;
-		
-		for (int i=0; i<4; i++)
-		{
-			content[i] = (byte) readByte();
-		}
-		byteIn =  new ByteArrayInputStream(content);
-		dataIn = new DataInputStream(byteIn);
-		try {
-			result = dataIn.readFloat();
-			dataIn.close();
-		} catch (IOException e) {
-			log.error(e);
-		}
-		
+		checkReadable(4, "float");
+		float result = Float.intBitsToFloat(getInt(offset + position));
+		position += 4;
 		return result;
 	}
-	
+
 	/**
 	 * Write a Double to the list
 	 * the value is beeing split up into 8 bytes in msb first order
@@ -323,222 +314,370 @@ public class Storage {
 	 */
 	public void writeDouble(double value) throws IllegalArgumentException
 	{
-		ByteArrayOutputStream byteOut = new ByteArrayOutputStream(8);
-		DataOutputStream dataOut = new DataOutputStream(byteOut);
-		byte bytes[] = new byte[8]; 
-		
-		try {
-			dataOut.writeDouble(value);
-			dataOut.close();
-		} catch (IOException e) {
-			log.error(e);
-		}
-		bytes = byteOut.toByteArray();
-		for (int i=0; i<8; i++)
-			writeByte(bytes[i]);
-		
+		long bits = Double.doubleToLongBits(value);
+		ensureWritable(8);
+		int p = offset + size;
+		putInt(p, (int) (bits >>> 32));
+		putInt(p + 4, (int) bits);
+		size += 8;
 	}
-	
+
 	/**
 	 * Read a Double value, that was split up into 8 bytes
 	 * @return the read double value
 	 */
 	public double readDouble() throws IllegalStateException
 	{
-		ByteArrayInputStream byteIn;
-		DataInputStream dataIn;
-		byte content[] = new byte[8];
-		double result = 0;
-		
-		for (int i=0; i<8; i++)
-		{
-			content[i] = (byte) readByte();
-		}
-		byteIn =  new ByteArrayInputStream(content);
-		dataIn = new DataInputStream(byteIn);
-		try {
-			result = dataIn.readDouble();
-			dataIn.close();
-		} catch (IOException e) {
-			log.error(e);
-		}
-		
-		return result;
+		checkReadable(8, "double");
+		int p = offset + position;
+		long hi = getInt(p);
+		long lo = getInt(p + 4) & 0xFFFFFFFFL;
+		position += 8;
+		return Double.longBitsToDouble((hi << 32) | lo);
+	}
+
+	/**
+	 * Appends the given portion of an array.
+	 * @param src
+	 * @param srcOffset
+	 * @param length
+	 */
+	public void writeBytes(byte[] src, int srcOffset, int length)
+	{
+		checkBounds(src, srcOffset, length);
+		ensureWritable(length);
+		System.arraycopy(src, srcOffset, buffer, offset + size, length);
+		size += length;
 	}
-	
+
+	/**
+	 * Appends all the bytes of an array.
+	 * @param src
+	 */
+	public void writeBytes(byte[] src)
+	{
+		writeBytes(src, 0, src.length);
+	}
+
+	/**
+	 * Appends the whole content of another storage, regardless of its read
+	 * position. The other storage is not modified.
+	 * @param src
+	 */
+	public void writeBytes(Storage src)
+	{
+		writeBytes(src.buffer, src.offset, src.size);
+	}
+
+	/**
+	 * Reads <code>length</code> bytes into the given portion of an array.
+	 * @param dst
+	 * @param dstOffset
+	 * @param length
+	 */
+	public void readBytes(byte[] dst, int dstOffset, int length) throws IllegalStateException
+	{
+		checkBounds(dst, dstOffset, length);
+		checkReadable(length, "bytes");
+		System.arraycopy(buffer, offset + position, dst, dstOffset, length);
+		position += length;
+	}
+
+	/**
+	 * Reads the next <code>length</code> bytes into a new array.
+	 * @param length
+	 * @return the read bytes
+	 */
+	public byte[] readBytes(int length) throws IllegalStateException
+	{
+		byte[] out = new byte[length];
+		readBytes(out, 0, length);
+		return out;
+	}
+
+	/**
+	 * Advances the read position by <code>length</code> bytes.
+	 * @param length
+	 */
+	public void skipBytes(int length) throws IllegalStateException
+	{
+		checkReadable(length, "bytes");
+		position += length;
+	}
+
+	/**
+	 * Writes the whole content of this storage, regardless of the read
+	 * position, to an {@link OutputStream} with a single call.
+	 * @param os
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream os) throws IOException
+	{
+		os.write(buffer, offset, size);
+	}
+
 	/**
 	 * Write a string to the list by encoding the characters in UTF-8
 	 * @param value the String to be written
 	 */
 	public void writeStringUTF8(String value) throws IllegalArgumentException
 	{
-		writeString(value,"UTF-8");
+		writeString(value, UTF_8);
 	}
-	
+
 	/**
 	 * Write a string to the list by encoding the characters in ASCII
 	 * @param value the String to be written
 	 */
 	public void writeStringASCII(String value) throws IllegalArgumentException
 	{
-		writeString(value,"US-ASCII");
+		/*
+		 * fast path: this is by far the most used encoding in TraCI
+		 */
+		int len = value.length();
+		ensureWritable(4 + len);
+		putInt(offset + size, len);
+		int p = offset + size + 4;
+		for (int i=0; i<len; i++) {
+			char c = value.charAt(i);
+			buffer[p + i] = c < 0x80 ? (byte) c : (byte) '?';
+		}
+		size += 4 + len;
 	}
-	
+
 	/**
 	 * Write a string to the list by encoding the characters in ISO-LATIN1
 	 * @param value the String to be written
 	 */
 	public void writeStringISOLATIN1(String value) throws IllegalArgumentException
 	{
-		writeString(value,"ISO-8859-1");
+		writeString(value, ISO_8859_1);
 	}
-	
+
 	/**
 	 * Write a string to the list by encoding the characters in UTF-16 Big Endian
 	 * @param value the String to be written
 	 */
 	public void writeStringUTF16BE(String value) throws IllegalArgumentException
 	{
-		writeString(value,"UTF-16BE");
+		writeString(value, UTF_16BE);
 	}
-	
+
 	/**
 	 * Write a string to the list by encoding the characters in UTF-16 Little Endian
 	 * @param value the String to be written
 	 */
 	public void writeStringUTF16LE(String value) throws IllegalArgumentException
 	{
-		writeString(value,"UTF-16LE");
+		writeString(value, UTF_16LE);
 	}
-	
-	private void writeString(String value, String charset) throws IllegalArgumentException
+
+	private void writeString(String value, Charset charset) throws IllegalArgumentException
 	{
-		byte bytes[];
-		
-		try {
-			bytes = value.getBytes(charset);
-		} catch (UnsupportedEncodingException e) {
-			log.error(e);
-			return;
-		}
-		
-		writeInt(value.length());
-	
-		for (int i=0; i<bytes.length; i++)
-			writeByte(bytes[i]);	
+		byte bytes[] = value.getBytes(charset);
+		// the length is in bytes, as readString() and SUMO expect
+		writeInt(bytes.length);
+		writeBytes(bytes);
 	}
-	
+
 	/**
 	 * Read a String from the list, that was encoded using UTF-8
 	 * @return the read String
 	 */
 	public String readStringUTF8() throws IllegalArgumentException
 	{
-		return readString("UTF-8");
+		return readString(UTF_8);
 	}
-	
+
 	/**
 	 * Read a String from the list, that was encoded using ASCII
 	 * @return the read String
 	 */
 	public String readStringASCII() throws IllegalArgumentException
 	{
-		return readString("US-ASCII");
+		return readString(US_ASCII);
 	}
-	
+
 	/**
 	 * Read a String from the list, that was encoded using ISO-LATIN1
 	 * @return the read String
 	 */
 	public String readStringISOLATIN1() throws IllegalArgumentException
 	{
-		return readString("ISO-8859-1");
+		return readString(ISO_8859_1);
 	}
-	
+
 	/**
 	 * Read a String from the list, that was encoded using UTF-16 Big Endian
 	 * @return the read String
 	 */
 	public String readStringUTF16BE() throws IllegalArgumentException
 	{
-		return readString("UTF-16BE");
+		return readString(UTF_16BE);
 	}
-	
+
 	/**
 	 * Read a String from the list, that was encoded using UTF-16 Little Endian
 	 * @return the read String
 	 */
 	public String readStringUTF16LE() throws IllegalArgumentException
 	{
-		return readString("UTF-16LE");
+		return readString(UTF_16LE);
 	}
-	
-	private String readString(String charset) throws IllegalStateException
+
+	/**
+	 * Read a String from the list, that was encoded using ASCII, and return
+	 * the instance of the given pool with the same content. The string is
+	 * decoded only if the pool has no such instance.
+	 * @param pool
+	 * @return the read String
+	 */
+	public String readStringASCII(StringPool pool) throws IllegalStateException
 	{
-		byte content[];
-		String result = new String("");
-		int length;
-		
-		length = readInt();
-		content = new byte[length];
-		for (int i=0; i<length; i++)
-		{
-			content[i] = (byte) readByte();
-		}
-	
-		try {
-			result = new String(content, charset);
-			
-		} catch (UnsupportedEncodingException e) {
-			log.error(e);
-			throw new AssertionError(e);
+		int length = readInt();
+		checkReadable(length, "string");
+		String result = pool.get(buffer, offset + position, length);
+		position += length;
+		return result;
+	}
+
+	/**
+	 * Compares the next ASCII string with the given one, without decoding
+	 * it. If they are equal, the read position is advanced past the string;
+	 * otherwise, it is left unchanged.
+	 * @param expected
+	 * @return <code>true</code> if the strings are equal
+	 */
+	public boolean matchStringASCII(String expected) throws IllegalStateException
+	{
+		checkReadable(4, "string length");
+		int length = getInt(offset + position);
+		if (length != expected.length())
+			return false;
+		checkReadable(4 + length, "string");
+		int p = offset + position + 4;
+		for (int i = 0; i < length; i++) {
+			if (StringPool.decode(buffer[p + i]) != expected.charAt(i))
+				return false;
 		}
-		
+		position += 4 + length;
+		return true;
+	}
+
+	private String readString(Charset charset) throws IllegalStateException
+	{
+		int length = readInt();
+		checkReadable(length, "string");
+		String result = new String(buffer, offset + position, length, charset);
+		position += length;
 		return result;
 	}
-	
+
+	/**
+	 * Empties the storage and rewinds the read position. The backing array is
+	 * kept, if owned, so that the storage can be reused without allocations.
+	 */
 	public void reset()
 	{
-		storageList.clear();
-		init();
+		if (shared) {
+			buffer = new byte[DEFAULT_CAPACITY];
+			shared = false;
+		}
+		offset = 0;
+		size = 0;
+		position = 0;
 	}
-	
+
 	/**
 	 * Retrieve the Size of the internal storage list
 	 * @return size  of the storage list
 	 */
 	public int size()
 	{
-		return storageList.size();
+		return size;
 	}
-	
+
 	/**
-	 * Retrieve the internal list that is used to store the data
+	 * Retrieve a read-only view of the stored data as a list of bytes.
+	 * <p>
+	 * Note: every element access boxes the byte; use {@link #readBytes(int)} or
+	 * {@link #writeTo(OutputStream)} to access the data in bulk.
 	 * @return the internal storage list
 	 */
 	public List<Byte> getStorageList()
 	{
-		return Collections.unmodifiableList(storageList);
+		return new ByteListView();
 	}
-	
-	private void init()
+
+	private void checkReadable(int length, String what) throws IllegalStateException
 	{
-		position = 0;
-		listIt = storageList.listIterator();
+		if (length < 0 || position + length > size)
+			throw new IllegalStateException("Error reading " + what
+					+ ", " + length + " bytes requested at position "
+					+ position + " but only " + (size - position)
+					+ " available");
 	}
-		
+
+	/**
+	 * Makes room for <code>length</code> more bytes at the end of the data,
+	 * growing the array or detaching it from any other storage if needed.
+	 */
+	private void ensureWritable(int length)
+	{
+		int required = size + length;
+		if (!shared && offset + required <= buffer.length)
+			return;
+
+		int newCapacity = Math.max(required, Math.max(buffer.length * 2, DEFAULT_CAPACITY));
+		byte[] newBuffer = new byte[newCapacity];
+		System.arraycopy(buffer, offset, newBuffer, 0, size);
+		buffer = newBuffer;
+		offset = 0;
+		shared = false;
+	}
+
+	private void putInt(int p, int value)
+	{
+		buffer[p    ] = (byte) (value >>> 24);
+		buffer[p + 1] = (byte) (value >>> 16);
+		buffer[p + 2] = (byte) (value >>>  8);
+		buffer[p + 3] = (byte) (value       );
+	}
+
+	private int getInt(int p)
+	{
+		return ((buffer[p    ]       ) << 24)
+			 | ((buffer[p + 1] & 0xFF) << 16)
+			 | ((buffer[p + 2] & 0xFF) <<  8)
+			 | ((buffer[p + 3] & 0xFF)      );
+	}
+
+	private class ByteListView extends AbstractList<Byte> implements RandomAccess {
+		@Override
+		public Byte get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+			return buffer[offset + index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		for (int i=0; i<storageList.size(); i++) {
+		for (int i=0; i<size; i++) {
 			if (i == position)
 				sb.append("[");
 			else
 				sb.append(" ");
-			
-			sb.append(String.format("%02X", storageList.get(i)));
+
+			sb.append(String.format("%02X", buffer[offset + i]));
 		}
-		
+
 		return sb.toString();
 	}
 }
@@ -0,0 +1,117 @@
+package de.uniluebeck.itm.tcpip;
+
+/**
+ * A fixed-size cache of the ASCII strings read from {@link Storage}s, so that
+ * strings that recur often, such as the IDs of vehicles, lanes and edges,
+ * resolve to the same instance and are decoded only the first time.
+ * <p>
+ * Each string has a single slot, chosen by its hash code, where it replaces
+ * any previous one; the pool thus never grows, and strings that are no
+ * longer read eventually leave it.
+ * <p>
+ * It is thread-safe.
+ */
+public class StringPool {
+
+	private static final int DEFAULT_CAPACITY = 1 << 14;
+
+	private final String[] slots;
+
+	/**
+	 * Constructor with the default capacity.
+	 */
+	public StringPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            the number of slots; it is rounded up to a power of two
+	 */
+	public StringPool(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		slots = new String[size];
+	}
+
+	/**
+	 * Returns the pooled instance with the same content as the given ASCII
+	 * bytes, or decodes them and pools the result. Bytes that are not ASCII
+	 * are decoded as {@link Storage#readStringASCII()} does.
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return the string
+	 */
+	public String get(byte[] bytes, int offset, int length) {
+		/*
+		 * same hash as String.hashCode() of the decoded string
+		 */
+		int hash = 0;
+		for (int i = 0; i < length; i++)
+			hash = 31 * hash + decode(bytes[offset + i]);
+
+		int slot = slot(hash);
+		synchronized (this) {
+			String pooled = slots[slot];
+			if (pooled != null && equals(pooled, bytes, offset, length))
+				return pooled;
+		}
+
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = decode(bytes[offset + i]);
+		String decoded = new String(chars);
+
+		synchronized (this) {
+			slots[slot] = decoded;
+		}
+		return decoded;
+	}
+
+	/**
+	 * Returns the pooled instance equal to the given string, or pools the
+	 * given one.
+	 * 
+	 * @param s
+	 * @return the pooled string
+	 */
+	public synchronized String intern(String s) {
+		int slot = slot(s.hashCode());
+		String pooled = slots[slot];
+		if (s.equals(pooled))
+			return pooled;
+		slots[slot] = s;
+		return s;
+	}
+
+	private int slot(int hash) {
+		hash ^= hash >>> 16;
+		return hash & (slots.length - 1);
+	}
+
+	private static boolean equals(String s, byte[] bytes, int offset, int length) {
+		if (s.length() != length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			if (s.charAt(i) != decode(bytes[offset + i]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes an ASCII byte as the US-ASCII charset does, i.e. replacing the
+	 * bytes above 0x7F with U+FFFD.
+	 * 
+	 * @param b
+	 * @return the decoded character
+	 */
+	static char decode(byte b) {
+		return b >= 0 ? (char) b : '\uFFFD';
+	}
+}
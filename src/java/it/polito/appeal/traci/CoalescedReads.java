@@ -0,0 +1,159 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A scope in which reads of uncached variables are coalesced. While the scope
+ * is open, when the value of a variable of an object isn't cached, the same
+ * variable is read in the same request message for all the other known
+ * objects of the same class that have read it before, and whose value isn't
+ * cached either. Therefore, code like
+ * 
+ * <pre>
+ * try (CoalescedReads scope = conn.coalesceReads()) {
+ * 	for (Vehicle v : conn.getVehicleRepository().getAll().values())
+ * 		total += v.getSpeed();
+ * }
+ * </pre>
+ * 
+ * makes one round trip instead of one per vehicle, as if the reads were put
+ * in a {@link MultiQuery}, except the first time it runs. The values read in
+ * advance are cached by their queries until the next simulation step, as
+ * usual. To read a variable of all the objects at once from the start, use
+ * {@link Repository#prefetch(java.util.Collection)}.
+ * <p>
+ * Outside the scope, reads are made one at a time. Scopes can be nested; the
+ * coalescing ends when the outermost one is closed.
+ * <p>
+ * Instances are obtained via {@link SumoTraciConnection#coalesceReads()}.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+public class CoalescedReads implements Closeable {
+
+	private static final Logger log = LogManager.getLogger();
+
+	/*
+	 * the repositories, indexed by the "get variable" command of their
+	 * objects
+	 */
+	private final Map<Integer, Repository<?>> domains = new HashMap<Integer, Repository<?>>();
+
+	private int depth;
+
+	private RoundTripMonitor monitor;
+
+	void addDomain(Repository<?> repository) {
+		domains.put(repository.getDomainID(), repository);
+	}
+
+	void setRoundTripMonitor(RoundTripMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	CoalescedReads open() {
+		depth++;
+		return this;
+	}
+
+	/**
+	 * Closes this scope.
+	 */
+	public void close() {
+		if (depth > 0)
+			depth--;
+	}
+
+	/**
+	 * @return <code>true</code> if reads are currently coalesced
+	 */
+	public boolean isOpen() {
+		return depth > 0;
+	}
+
+	/**
+	 * Reads the value of the given query, together with the same variable of
+	 * the other objects of the same repository.
+	 * 
+	 * @param query
+	 * @return <code>true</code> if the query was run, <code>false</code> if
+	 *         the caller has to run it alone
+	 * @throws IOException
+	 */
+	boolean fetch(ReadObjectVarQuery<?> query) throws IOException {
+		if (depth == 0 || !query.isSubscribable())
+			return false;
+		Repository<?> domain = domains.get(query.getCommandID());
+		if (domain == null)
+			return false;
+
+		MultiQuery multi = new MultiQuery(query.dos, query.dis);
+		multi.add(query);
+		for (TraciObject<?> object : domain.getKnownObjects()) {
+			if (multi.size() == MultiQuery.MAX_BATCH_SIZE)
+				break;
+			/*
+			 * objects whose query wasn't made yet are left out, not to make
+			 * a query for each object that is never read
+			 */
+			ReadObjectVarQuery<?> peer = object.getMadeReadQueryByVarID(query.getVarID());
+			if (peer == null || peer == query || peer.hasValue())
+				continue;
+			multi.add(peer);
+		}
+		if (multi.size() == 1)
+			return false;
+
+		try {
+			multi.run();
+		} catch (TraCIException e) {
+			/*
+			 * the queries after the failed one got no value: each of them,
+			 * including the given one, will be read alone when accessed
+			 */
+			log.warn("coalesced read of variable 0x" + Integer.toHexString(query.getVarID())
+					+ " failed, reading one object at a time: " + e.getMessage());
+			return query.hasValue();
+		}
+		if (monitor != null)
+			monitor.batchRun(multi.size());
+		return true;
+	}
+
+	/**
+	 * Reports that the given query had to be run alone, either because no
+	 * scope is open or because its read can't be coalesced.
+	 * 
+	 * @param query
+	 */
+	void readAlone(ReadObjectVarQuery<?> query) {
+		if (monitor != null)
+			monitor.singleRead(query);
+	}
+}
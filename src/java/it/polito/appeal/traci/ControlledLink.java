@@ -42,7 +42,7 @@ public class ControlledLink {
 
 	ControlledLink(Storage content, Repository<Lane> laneRepo)
 			throws IOException {
-		StringList list = new StringList(content, true);
+		StringList list = new StringList(content, true, laneRepo.getStringPool());
 		Iterator<String> listIt = list.iterator();
 		incomingLane = laneRepo.getByID(listIt.next());
 		outgoingLane = laneRepo.getByID(listIt.next());
@@ -45,9 +45,9 @@ public class Link {
 	protected Link(Storage content, Repository<Lane> laneRepo) throws IOException {
 		checkType(content, Constants.TYPE_STRING);
 		// let's hope they don't point to this lane recursively!
-		nextNonInternalLane = laneRepo.getByID(content.readStringASCII());
+		nextNonInternalLane = laneRepo.getByID(laneRepo.readID(content));
 		checkType(content, Constants.TYPE_STRING);
-		nextInternalLane = laneRepo.getByID(content.readStringASCII());
+		nextInternalLane = laneRepo.getByID(laneRepo.readID(content));
 		checkType(content, Constants.TYPE_UBYTE);
 		hasPriority = content.readUnsignedByte() > 0;
 		checkType(content, Constants.TYPE_UBYTE);
@@ -0,0 +1,153 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Advances several connections by one step at a time, keeping them in
+ * lock-step, e.g. to co-simulate the partitions of a large scenario in
+ * different SUMO instances.
+ * <p>
+ * Calling {@link SumoTraciConnection#nextSimStep()} on each connection would
+ * make a step last as much as the sum of the steps of all the instances.
+ * Instead, {@link #step()} sends the step request to all the connections
+ * first, and then reads all the responses; this way, all the instances
+ * simulate their step at the same time, and a step lasts as much as the
+ * slowest of them.
+ * <p>
+ * The listeners of each connection are notified as usual, once its response
+ * is read. The listeners added to this class are notified only once all the
+ * connections advanced, so they can safely exchange data between the
+ * instances.
+ * <p>
+ * All the connections are expected to have the same step length.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+public class LockStepDriver {
+
+	private final List<SumoTraciConnection> connections;
+
+	private final Set<StepAdvanceListener> stepAdvanceListeners = new HashSet<StepAdvanceListener>();
+
+	/**
+	 * @param connections
+	 *            the running connections to advance
+	 */
+	public LockStepDriver(SumoTraciConnection... connections) {
+		this(Arrays.asList(connections));
+	}
+
+	/**
+	 * @param connections
+	 *            the running connections to advance
+	 */
+	public LockStepDriver(List<SumoTraciConnection> connections) {
+		if (connections.isEmpty())
+			throw new IllegalArgumentException("no connections to drive");
+		this.connections = new ArrayList<SumoTraciConnection>(connections);
+	}
+
+	/**
+	 * @return the connections advanced by this driver
+	 */
+	public List<SumoTraciConnection> getConnections() {
+		return Collections.unmodifiableList(connections);
+	}
+
+	/**
+	 * Adds a listener that is notified when all the connections advanced by
+	 * a step.
+	 * 
+	 * @param listener
+	 */
+	public void addStepAdvanceListener(StepAdvanceListener listener) {
+		stepAdvanceListeners.add(listener);
+	}
+
+	/**
+	 * @param listener
+	 */
+	public void removeStepAdvanceListener(StepAdvanceListener listener) {
+		stepAdvanceListeners.remove(listener);
+	}
+
+	/**
+	 * @return the current simulation time of the connections, in ms
+	 */
+	public int getCurrentSimTime() {
+		return connections.get(0).getCurrentSimTime();
+	}
+
+	/**
+	 * Advances all the connections by a step.
+	 * <p>
+	 * If a connection fails, the responses of all the others are read
+	 * anyway, so that they remain usable; then, the first failure is thrown.
+	 * 
+	 * @throws IOException
+	 * @throws IllegalStateException
+	 *             if any connection is closed
+	 */
+	public void step() throws IOException, IllegalStateException {
+		int begun = 0;
+		IOException ioFailure = null;
+		RuntimeException runtimeFailure = null;
+
+		try {
+			for (SumoTraciConnection conn : connections) {
+				conn.beginSimStep();
+				begun++;
+			}
+		} catch (IOException e) {
+			ioFailure = e;
+		} catch (RuntimeException e) {
+			runtimeFailure = e;
+		}
+
+		for (int i = 0; i < begun; i++) {
+			try {
+				connections.get(i).endSimStep();
+			} catch (IOException e) {
+				if (ioFailure == null && runtimeFailure == null)
+					ioFailure = e;
+			} catch (RuntimeException e) {
+				if (ioFailure == null && runtimeFailure == null)
+					runtimeFailure = e;
+			}
+		}
+
+		if (ioFailure != null)
+			throw ioFailure;
+		if (runtimeFailure != null)
+			throw runtimeFailure;
+
+		for (StepAdvanceListener listener : stepAdvanceListeners)
+			listener.nextStep(getCurrentSimTime());
+	}
+}
@@ -0,0 +1,76 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import java.util.Arrays;
+
+/**
+ * Splits a stream of bytes into TraCI messages, using the length header each
+ * message starts with. Bytes are fed in chunks of any size with
+ * {@link #write(byte[], int, int)}, and complete messages are taken with
+ * {@link #next()}.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+class MessageAssembler {
+
+	private static final int HEADER_SIZE = Integer.SIZE / 8;
+
+	private byte[] buffer = new byte[4096];
+	private int size = 0;
+
+	void write(byte[] b, int off, int len) {
+		if (size + len > buffer.length)
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + len));
+		System.arraycopy(b, off, buffer, size, len);
+		size += len;
+	}
+
+	void write(int b) {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	/**
+	 * @return the next complete message, including its length header, or
+	 *         <code>null</code> if more bytes are needed
+	 */
+	byte[] next() {
+		if (size < HEADER_SIZE)
+			return null;
+		int len = ((buffer[0] & 0xff) << 24) | ((buffer[1] & 0xff) << 16)
+				| ((buffer[2] & 0xff) << 8) | (buffer[3] & 0xff);
+		if (len < HEADER_SIZE)
+			throw new IllegalStateException("bad message length " + len);
+		if (size < len)
+			return null;
+		byte[] message = Arrays.copyOf(buffer, len);
+		System.arraycopy(buffer, len, buffer, 0, size - len);
+		size -= len;
+		return message;
+	}
+
+	/**
+	 * @return <code>true</code> if there are bytes of an incomplete message
+	 */
+	boolean hasPartialMessage() {
+		return size > 0;
+	}
+}
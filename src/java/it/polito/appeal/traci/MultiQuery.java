@@ -19,6 +19,8 @@
 
 package it.polito.appeal.traci;
 
+import it.polito.appeal.traci.metrics.Metrics;
+import it.polito.appeal.traci.metrics.MetricsListener;
 import it.polito.appeal.traci.protocol.Command;
 import it.polito.appeal.traci.protocol.RequestMessage;
 import it.polito.appeal.traci.protocol.ResponseContainer;
@@ -50,17 +52,58 @@ import org.apache.logging.log4j.Logger;
 public class MultiQuery {
 	
 	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * Maximum number of queries that are sent in a single message when a
+	 * batch of reads is built automatically. It keeps both the request and
+	 * the response within the usual socket buffer sizes.
+	 */
+	static final int MAX_BATCH_SIZE = 512;
+
+	/**
+	 * Maximum size, in bytes, of the request commands sent in a single
+	 * message when a batch of reads is built automatically. Each response
+	 * repeats the object ID of its request and adds a status and a value, so
+	 * it is usually two or three times larger; this keeps both within the
+	 * usual socket buffer sizes, unless the values are long lists.
+	 */
+	static final int MAX_REQUEST_BYTES = 8192;
 	
 	private final DataOutputStream dos;
 	private final DataInputStream dis;
 	
 	private final List<Query> queries = new ArrayList<Query>();
+
+	/*
+	 * values of sentCommand
+	 */
+	private static final int NOT_MEASURED = -1;
+	private static final int MIXED_COMMANDS = -2;
+
+	/**
+	 * When metrics are enabled, the time the requests were sent and the ID
+	 * of their commands, or {@link #MIXED_COMMANDS} if they had different
+	 * IDs. The round trip is attributed to a command only in the first case.
+	 */
+	private long sentAt;
+	private int sentCommand = NOT_MEASURED;
+
+	private RoundTripMonitor monitor;
 	
 	MultiQuery(DataOutputStream dos, DataInputStream dis) {
 		this.dos = dos;
 		this.dis = dis;
 	}
 	
+	/**
+	 * Makes {@link #run()} count its round trips in the given monitor.
+	 * 
+	 * @param monitor
+	 */
+	void setRoundTripMonitor(RoundTripMonitor monitor) {
+		this.monitor = monitor;
+	}
+
 	/**
 	 * Adds a query to be run.
 	 * @param query
@@ -93,16 +136,106 @@ public class MultiQuery {
 		if(queries.isEmpty())
 			return;
 		
+		QueryPipeline.awaitIdle(dos);
+		writeRequests();
+		readResponses();
+
+		if (monitor != null)
+			monitor.batchRun(queries.size());
+	}
+
+	/**
+	 * @param query
+	 * @return the size, in bytes, of the commands the given query sends
+	 */
+	static int requestSize(Query query) {
+		int size = 0;
+		for (Command req : query.getRequests())
+			size += req.rawSize();
+		return size;
+	}
+
+	/**
+	 * @return the number of queries to run
+	 */
+	int size() {
+		return queries.size();
+	}
+
+	/**
+	 * @return <code>true</code> if there are no queries to run
+	 */
+	boolean isEmpty() {
+		return queries.isEmpty();
+	}
+
+	/**
+	 * Sends the requests of all the queries in a single message, without
+	 * waiting for the response.
+	 * 
+	 * @throws IOException
+	 */
+	void writeRequests() throws IOException {
+		boolean measured = Metrics.getListener() != null;
+		int commandID = NOT_MEASURED;
+
 		RequestMessage reqMsg = new RequestMessage();
 		for (Query q : queries) {
 			for (Command req : q.getRequests()) {
 				reqMsg.append(req);
+				if (measured)
+					commandID = (commandID == NOT_MEASURED || commandID == req.id()) ? req.id() : MIXED_COMMANDS;
 			}
 		}
 		
 		reqMsg.writeTo(dos);
 		dos.flush();
+
+		sentCommand = commandID;
+		if (measured)
+			sentAt = System.nanoTime();
+	}
+
+	/**
+	 * Reads the response message to the requests sent by
+	 * {@link #writeRequests()} and passes it to the queries.
+	 * 
+	 * @throws IOException
+	 */
+	void readResponses() throws IOException {
+		pickResponses(readResponseMessage());
+	}
+
+	/**
+	 * Reads the response message to the requests sent by
+	 * {@link #writeRequests()}, without passing it to the queries.
+	 * 
+	 * @return the response message
+	 * @throws IOException
+	 */
+	ResponseMessage readResponseMessage() throws IOException {
 		ResponseMessage respMsg = new ResponseMessage(dis);
+
+		MetricsListener metrics = Metrics.getListener();
+		if (metrics != null && sentCommand != NOT_MEASURED) {
+			long latency = System.nanoTime() - sentAt;
+			metrics.roundTripCompleted(latency);
+			if (sentCommand != MIXED_COMMANDS)
+				metrics.commandCompleted(sentCommand, latency);
+			metrics.queriesRun(queries.size());
+		}
+		sentCommand = NOT_MEASURED;
+		return respMsg;
+	}
+
+	/**
+	 * Passes a response message read by {@link #readResponseMessage()} to
+	 * the queries.
+	 * 
+	 * @param respMsg
+	 * @throws IOException
+	 */
+	void pickResponses(ResponseMessage respMsg) throws IOException {
 		Iterator<ResponseContainer> responseIterator = respMsg.responses().iterator();
 		for (Query q : queries) {
 			q.pickResponses(responseIterator);			
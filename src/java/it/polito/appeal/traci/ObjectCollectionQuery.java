@@ -59,7 +59,7 @@ public abstract class ObjectCollectionQuery<V extends TraciObject<?>, C extends
 	@Override
 	protected C readValue(Command resp) throws TraCIException {
 		Storage content = resp.content();
-		List<String> ids = new StringList(content, true);
+		List<String> ids = new StringList(content, true, repository.getStringPool());
 		C out = makeCollection();
 		for (String id : ids) {
 			try {
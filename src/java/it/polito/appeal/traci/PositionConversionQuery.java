@@ -92,6 +92,11 @@ public class PositionConversionQuery extends ReadObjectVarQuery.PositionQ {
 		roadmapPos = pos;
 	}
 
+	@Override
+	boolean isSubscribable() {
+		return false;
+	}
+
 	@Override
 	List<Command> getRequests() {
 		if (roadmapPos == null && cartesianPos == null)
@@ -22,6 +22,7 @@ package it.polito.appeal.traci;
 import it.polito.appeal.traci.protocol.Command;
 import it.polito.appeal.traci.protocol.ResponseContainer;
 
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 
@@ -43,8 +44,8 @@ public abstract class Query {
 	 * verify that the operation is successful and/or get the requested data.
 	 * <p>
 	 * @param responseIterator
-	 * @throws TraCIException 
+	 * @throws IOException 
 	 */
-	abstract void pickResponses(Iterator<ResponseContainer> responseIterator) throws TraCIException;
+	abstract void pickResponses(Iterator<ResponseContainer> responseIterator) throws IOException;
 
 }
@@ -0,0 +1,403 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package it.polito.appeal.traci;
+
+import it.polito.appeal.traci.protocol.ResponseMessage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs queries asynchronously. Submitting a query sends its request to SUMO
+ * straight away and returns a {@link Future}, without waiting for the
+ * response; responses are read in order by a dedicated reader thread.
+ * Therefore, several request messages can be in flight at the same time, and
+ * the caller can do its own computations while SUMO processes them.
+ * <p>
+ * The reader thread only reads the response messages. Each of them is passed
+ * to its queries by the thread that asks for the result of the future, or
+ * that calls {@link #drain()}, in the same order as the queries were
+ * submitted. Since parsing a response may need other queries, e.g. to find the
+ * {@link Lane} object whose ID was read, it can't be done by the reader
+ * thread, that would wait for itself.
+ * <p>
+ * Since SUMO answers the messages in the same order it receives them, a
+ * synchronous query (e.g. {@link ValueReadQuery#get()} of a query whose value
+ * isn't cached, or {@link MultiQuery#run()}) can't be run while submitted
+ * queries are in flight, or it would read a response that is not its own.
+ * Therefore, it first waits for the pipeline to {@link #drain()}, as do
+ * {@link SumoTraciConnection#nextSimStep()} and
+ * {@link SumoTraciConnection#close()}.
+ * <p>
+ * Instances are obtained via {@link SumoTraciConnection#getQueryPipeline()}.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+public class QueryPipeline {
+
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * How long the reader thread waits for a response to read before it
+	 * stops, in seconds. It is started again by the next submitted query.
+	 */
+	private static final long READER_IDLE_TIMEOUT = 5;
+
+	private final DataInputStream dis;
+	private final RequestStream dos;
+
+	/*
+	 * the responses to read, in the same order as the requests were sent
+	 */
+	private final BlockingQueue<FutureTask<ResponseMessage>> toRead = new LinkedBlockingQueue<FutureTask<ResponseMessage>>();
+
+	/*
+	 * the submitted queries whose response wasn't passed to them yet, in the
+	 * same order; guarded by this
+	 */
+	private final Queue<Submission<?>> pending = new LinkedList<Submission<?>>();
+
+	private Thread reader;
+
+	/*
+	 * once a response couldn't be read, the stream is no longer aligned with
+	 * the requests and all the following ones fail
+	 */
+	private volatile IOException failure;
+
+	QueryPipeline(DataInputStream dis, RequestStream dos) {
+		this.dis = dis;
+		this.dos = dos;
+		dos.setPipeline(this);
+	}
+
+	/**
+	 * Called before running a query synchronously: if the connection that
+	 * writes to the given stream has a pipeline, waits until it is
+	 * {@link #drain() drained}.
+	 * 
+	 * @param dos
+	 * @throws IOException
+	 *             if one of the pipelined responses could not be read
+	 */
+	static void awaitIdle(DataOutputStream dos) throws IOException {
+		if (!(dos instanceof RequestStream))
+			return;
+		QueryPipeline pipeline = ((RequestStream) dos).getPipeline();
+		if (pipeline != null)
+			pipeline.drain();
+	}
+
+	/**
+	 * Sends the requests of all the queries of a {@link MultiQuery} in a
+	 * single message. The multi-query must not be changed until the returned
+	 * future is done.
+	 * 
+	 * @param multi
+	 * @return a future whose result is available when the responses have been
+	 *         passed to the queries
+	 * @throws IOException
+	 *             if the requests could not be sent
+	 */
+	public Future<Void> submit(MultiQuery multi) throws IOException {
+		return enqueue(multi, new Callable<Void>() {
+			public Void call() {
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Sends the request(s) of a single query.
+	 * 
+	 * @param query
+	 * @return a future whose result is available when the response has been
+	 *         passed to the query
+	 * @throws IOException
+	 *             if the request could not be sent
+	 * @see #submit(MultiQuery)
+	 */
+	public Future<Void> submit(Query query) throws IOException {
+		MultiQuery multi = new MultiQuery(dos, dis);
+		multi.add(query);
+		return submit(multi);
+	}
+
+	/**
+	 * Sends the request(s) of a read query. The value will also be cached by
+	 * the query.
+	 * 
+	 * @param query
+	 * @return a future of the read value
+	 * @throws IOException
+	 *             if the request could not be sent
+	 */
+	public <V> Future<V> submit(final ValueReadQuery<V> query)
+			throws IOException {
+		MultiQuery multi = new MultiQuery(dos, dis);
+		multi.add(query);
+		return enqueue(multi, new Callable<V>() {
+			public V call() {
+				return query.cachedValue();
+			}
+		});
+	}
+
+	private synchronized <T> Future<T> enqueue(MultiQuery multi,
+			Callable<T> result) throws IOException {
+		if (failure != null)
+			throw failure;
+
+		if (multi.isEmpty()) {
+			Submission<T> submission = new Submission<T>(multi, result, null);
+			submission.complete();
+			return submission;
+		}
+
+		Submission<T> submission = new Submission<T>(multi, result, readingOf(multi));
+		multi.writeRequests();
+		pending.add(submission);
+		toRead.add(submission.reading);
+		if (reader == null)
+			startReader();
+		return submission;
+	}
+
+	private FutureTask<ResponseMessage> readingOf(final MultiQuery multi) {
+		return new FutureTask<ResponseMessage>(new Callable<ResponseMessage>() {
+			public ResponseMessage call() throws IOException {
+				if (failure != null)
+					throw failure;
+				try {
+					return multi.readResponseMessage();
+				} catch (IOException e) {
+					failure = e;
+					throw e;
+				}
+			}
+		});
+	}
+
+	private void startReader() {
+		reader = new Thread("TraCI response reader") {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						FutureTask<ResponseMessage> next = toRead.poll(READER_IDLE_TIMEOUT, TimeUnit.SECONDS);
+						if (next != null) {
+							next.run();
+							continue;
+						}
+						/*
+						 * don't keep a thread alive for a pipeline nobody
+						 * uses, e.g. of a connection that was never closed
+						 */
+						synchronized (QueryPipeline.this) {
+							if (toRead.isEmpty()) {
+								if (reader == this)
+									reader = null;
+								return;
+							}
+						}
+					}
+				} catch (InterruptedException e) {
+					// shutdown
+				}
+			}
+		};
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Waits until the responses of all the submitted queries have been read,
+	 * and passes them to the queries.
+	 * 
+	 * @throws IOException
+	 *             if one of the responses could not be read
+	 */
+	public synchronized void drain() throws IOException {
+		Submission<?> next;
+		while ((next = pending.poll()) != null)
+			next.complete();
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * @return <code>true</code> if all the submitted queries got their
+	 *         responses
+	 */
+	public synchronized boolean isIdle() {
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Stops the reader thread. Queries still in flight are cancelled.
+	 */
+	synchronized void shutdown() {
+		dos.setPipeline(null);
+		if (reader != null) {
+			reader.interrupt();
+			reader = null;
+		}
+
+		FutureTask<?> unread;
+		while ((unread = toRead.poll()) != null)
+			unread.cancel(false);
+		if (log.isDebugEnabled())
+			log.debug("query pipeline shut down");
+	}
+
+	/**
+	 * The future of a submitted multi-query.
+	 */
+	private class Submission<T> implements Future<T> {
+
+		private final MultiQuery multi;
+		private final Callable<T> result;
+
+		/*
+		 * run by the reader thread; null if there is nothing to read
+		 */
+		private final FutureTask<ResponseMessage> reading;
+
+		/*
+		 * set by complete(), guarded by the pipeline
+		 */
+		private boolean completed;
+		private T value;
+		private Throwable error;
+
+		Submission(MultiQuery multi, Callable<T> result,
+				FutureTask<ResponseMessage> reading) {
+			this.multi = multi;
+			this.result = result;
+			this.reading = reading;
+		}
+
+		/**
+		 * Waits for the response and passes it to the queries. Called in
+		 * the same order as the queries were submitted, with the pipeline's
+		 * lock held.
+		 */
+		void complete() {
+			completed = true;
+			try {
+				if (reading != null)
+					multi.pickResponses(awaitResponse());
+				value = result.call();
+			} catch (ExecutionException e) {
+				error = e.getCause();
+			} catch (CancellationException e) {
+				error = e;
+			} catch (Exception e) {
+				// e.g. a TraCIException: only these queries failed
+				error = e;
+			}
+		}
+
+		private ResponseMessage awaitResponse() throws ExecutionException {
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						return reading.get();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public T get() throws ExecutionException {
+			synchronized (QueryPipeline.this) {
+				while (!completed)
+					pending.poll().complete();
+			}
+			if (error instanceof CancellationException)
+				throw (CancellationException) error;
+			if (error != null)
+				throw new ExecutionException(error);
+			return value;
+		}
+
+		@Override
+		public T get(long timeout, TimeUnit unit) throws ExecutionException,
+				InterruptedException, TimeoutException {
+			if (reading != null) {
+				try {
+					reading.get(timeout, unit);
+				} catch (ExecutionException e) {
+					// reported by get()
+				} catch (CancellationException e) {
+					// reported by get()
+				}
+			}
+			return get();
+		}
+
+		/**
+		 * @return <code>true</code> if the response was read, and
+		 *         {@link #get()} won't wait for SUMO
+		 */
+		@Override
+		public boolean isDone() {
+			return reading == null || reading.isDone();
+		}
+
+		/**
+		 * Does nothing, since the requests were already sent.
+		 * 
+		 * @return <code>false</code>
+		 */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return reading != null && reading.isCancelled();
+		}
+	}
+}
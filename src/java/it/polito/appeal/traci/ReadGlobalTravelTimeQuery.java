@@ -60,6 +60,11 @@ public class ReadGlobalTravelTimeQuery extends ReadObjectVarQuery.DoubleQ {
 		this.time = time;
 	}
 
+	@Override
+	boolean isSubscribable() {
+		return false;
+	}
+
 	@Override
 	List<Command> getRequests() {
 		if (time == -1)
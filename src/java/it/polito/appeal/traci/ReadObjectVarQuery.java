@@ -36,6 +36,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import de.uniluebeck.itm.tcpip.Storage;
+import de.uniluebeck.itm.tcpip.StringPool;
 
 /**
  * Represents a {@link ValueReadQuery} that reads a variable of a specific
@@ -55,6 +56,8 @@ public abstract class ReadObjectVarQuery<V> extends ValueReadQuery<V> {
 	private final int commandID;
 	private final String objectID;
 	private final int varID;
+
+	private CoalescedReads coalescedReads;
 	
 	ReadObjectVarQuery(DataInputStream dis, DataOutputStream dos, int commandID, String objectID, int varID) {
 		super(dis, dos);
@@ -63,6 +66,70 @@ public abstract class ReadObjectVarQuery<V> extends ValueReadQuery<V> {
 		this.varID = varID;
 	}
 	
+	/**
+	 * @return the ID of the "get variable" command of this query
+	 */
+	int getCommandID() {
+		return commandID;
+	}
+
+	/**
+	 * @return the ID of the variable read by this query
+	 */
+	int getVarID() {
+		return varID;
+	}
+
+	void setCoalescedReads(CoalescedReads coalescedReads) {
+		this.coalescedReads = coalescedReads;
+	}
+
+	/**
+	 * Lets the coalescing scope, if open, read this value along with the
+	 * same variable of other objects.
+	 */
+	@Override
+	void fetch() throws IOException {
+		if (coalescedReads == null)
+			super.fetch();
+		else if (!coalescedReads.fetch(this)) {
+			super.fetch();
+			coalescedReads.readAlone(this);
+		}
+	}
+
+	/**
+	 * Tells if this query's variable can be subscribed to. It's not possible
+	 * for queries that need further parameters in the request.
+	 */
+	boolean isSubscribable() {
+		return true;
+	}
+
+	/**
+	 * Reads a value of this variable that was pushed by SUMO as part of a
+	 * subscription response, and caches it as if it came from a regular
+	 * request.
+	 * 
+	 * @param resp
+	 *            a command whose content is positioned at the value type
+	 * @throws TraCIException
+	 */
+	void pickSubscribedValue(Command resp) throws TraCIException {
+		pickValue(resp);
+	}
+
+	/**
+	 * Reads the value from a response and caches it.
+	 * 
+	 * @param resp
+	 *            a command whose content is positioned at the value type
+	 * @throws TraCIException
+	 */
+	void pickValue(Command resp) throws TraCIException {
+		setDone(readValue(resp));
+	}
+
 	@Override
 	List<Command> getRequests() {
 		Command cmd = new Command(commandID);
@@ -81,8 +148,7 @@ public abstract class ReadObjectVarQuery<V> extends ValueReadQuery<V> {
 		Utils.checkByte(resp.content(), varID);
 		Utils.checkObjectID(resp.content(), objectID);
 		
-		V value = readValue(resp);
-		setDone(value);
+		pickValue(resp);
 	}
 	
 	protected abstract V readValue(Command resp) throws TraCIException; 
@@ -102,6 +168,8 @@ public abstract class ReadObjectVarQuery<V> extends ValueReadQuery<V> {
 	 */
 	public static class IntegerQ extends ReadObjectVarQuery<Integer> {
 
+		private int intValue;
+
 		IntegerQ(DataInputStream dis, DataOutputStream dos, int commandID,
 				String objectID, int varID) {
 			super(dis, dos, commandID, objectID, varID);
@@ -110,11 +178,51 @@ public abstract class ReadObjectVarQuery<V> extends ValueReadQuery<V> {
 		@Override
 		protected Integer readValue(Command resp)
 				throws TraCIException {
+			return readInt(resp);
+		}
+
+		private static int readInt(Command resp) throws TraCIException {
 			Storage content = resp.content();
 			Utils.checkType(content, Constants.TYPE_INTEGER);
 			return content.readInt();
 		}
-		
+
+		@Override
+		void pickValue(Command resp) throws TraCIException {
+			intValue = readInt(resp);
+			markDone();
+		}
+
+		@Override
+		protected void setDone(Integer value) {
+			if (value == null)
+				super.setDone(null);
+			else {
+				intValue = value;
+				markDone();
+			}
+		}
+
+		@Override
+		public Integer get() throws IOException {
+			return getInt();
+		}
+
+		@Override
+		Integer cachedValue() {
+			return intValue;
+		}
+
+		/**
+		 * Unboxed version of {@link #get()}.
+		 * 
+		 * @return the value
+		 * @throws IOException
+		 */
+		public int getInt() throws IOException {
+			prepareGet();
+			return intValue;
+		}
 	}
 	
 	/**
@@ -126,16 +234,59 @@ public abstract class ReadObjectVarQuery<V> extends ValueReadQuery<V> {
 	 */
 	public static class DoubleQ extends ReadObjectVarQuery<Double> {
 
+		private double doubleValue;
+
 		DoubleQ(DataInputStream dis, DataOutputStream dos, int commandID, String objectID, int varID) {
 			super(dis, dos, commandID, objectID, varID);
 		}
 
 		@Override
 		protected Double readValue(Command resp) throws TraCIException {
+			return readDouble(resp);
+		}
+
+		private static double readDouble(Command resp) throws TraCIException {
 			Storage content = resp.content();
 			Utils.checkType(content, Constants.TYPE_DOUBLE);
 			return content.readDouble();
 		}
+
+		@Override
+		void pickValue(Command resp) throws TraCIException {
+			doubleValue = readDouble(resp);
+			markDone();
+		}
+
+		@Override
+		protected void setDone(Double value) {
+			if (value == null)
+				super.setDone(null);
+			else {
+				doubleValue = value;
+				markDone();
+			}
+		}
+
+		@Override
+		public Double get() throws IOException {
+			return getDouble();
+		}
+
+		@Override
+		Double cachedValue() {
+			return doubleValue;
+		}
+
+		/**
+		 * Unboxed version of {@link #get()}.
+		 * 
+		 * @return the value
+		 * @throws IOException
+		 */
+		public double getDouble() throws IOException {
+			prepareGet();
+			return doubleValue;
+		}
 	}
 
 	/**
@@ -235,15 +386,27 @@ public abstract class ReadObjectVarQuery<V> extends ValueReadQuery<V> {
 	 */
 	public static class StringListQ extends ReadObjectVarQuery<List<String>> {
 
+		private StringPool pool;
+
 		StringListQ(DataInputStream dis, DataOutputStream dos, int commandID,
 				String objectID, int varID) {
 			super(dis, dos, commandID, objectID, varID);
 		}
 
+		/**
+		 * Makes the read strings resolve to the instances of a pool, e.g.
+		 * because they are IDs that recur often.
+		 * 
+		 * @param pool
+		 */
+		void setStringPool(StringPool pool) {
+			this.pool = pool;
+		}
+
 		@Override
 		protected List<String> readValue(
 				Command resp) throws TraCIException {
-			return new StringList(resp.content(), true);
+			return new StringList(resp.content(), true, pool);
 		}
 	}
 	
@@ -288,7 +451,7 @@ public abstract class ReadObjectVarQuery<V> extends ValueReadQuery<V> {
 		protected V readValue(Command resp) throws TraCIException {
 			Storage content = resp.content();
 			Utils.checkType(content, Constants.TYPE_STRING);
-			String id = content.readStringASCII();
+			String id = repo.readID(content);
 			try {
 				return repo.getByID(id);
 			} catch (IOException e) {
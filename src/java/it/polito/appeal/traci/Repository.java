@@ -22,15 +22,20 @@ package it.polito.appeal.traci;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import de.uniluebeck.itm.tcpip.Storage;
+import de.uniluebeck.itm.tcpip.StringPool;
+
 import it.polito.appeal.traci.ReadObjectVarQuery.StringListQ;
 
 /**
@@ -60,6 +65,18 @@ public class Repository<V extends TraciObject<?>> {
 	private ObjectFactory<V> factory;
 	private final StringListQ idListQuery;
 
+	/*
+	 * the last ID list the object cache was synchronized with
+	 */
+	private List<String> syncedIDList;
+	private Set<String> syncedIDs;
+
+	private SubscriptionRegistry subscriptions;
+	private Collection<? extends Enum<?>> subscribedVariables;
+	private CoalescedReads coalescedReads;
+	private StepClock stepClock;
+	private StringPool stringPool;
+
 	/**
 	 * Constructor for the repository.
 	 * 
@@ -78,10 +95,59 @@ public class Repository<V extends TraciObject<?>> {
 		this.factory = factory;
 	}
 
+	void setSubscriptionRegistry(SubscriptionRegistry subscriptions) {
+		this.subscriptions = subscriptions;
+	}
+
+	void setCoalescedReads(CoalescedReads coalescedReads) {
+		this.coalescedReads = coalescedReads;
+	}
+
+	void setStepClock(StepClock stepClock) {
+		this.stepClock = stepClock;
+	}
+
+	/**
+	 * Sets the pool that the IDs of the objects of this repository resolve
+	 * to, both in the ID list and wherever they are read from SUMO.
+	 * 
+	 * @param stringPool
+	 */
+	void setStringPool(StringPool stringPool) {
+		this.stringPool = stringPool;
+		idListQuery.setStringPool(stringPool);
+	}
+
+	/**
+	 * @return the pool of the IDs of the objects of this repository, or
+	 *         <code>null</code> if none
+	 */
+	StringPool getStringPool() {
+		return stringPool;
+	}
+
+	/**
+	 * Reads the ID of an object of this repository, resolving it to the
+	 * pooled instance, if any.
+	 * 
+	 * @param content
+	 * @return the ID
+	 */
+	String readID(Storage content) {
+		return stringPool != null ? content.readStringASCII(stringPool) : content.readStringASCII();
+	}
+
 	protected Map<String, V> getCached() {
 		return Collections.unmodifiableMap(objectCache);
 	}
 
+	/**
+	 * @return the objects known so far, without synchronizing with SUMO
+	 */
+	Collection<V> getKnownObjects() {
+		return getCached().values();
+	}
+
 	/**
 	 * Synchronizes the local set of objects with SUMO's counterparts and
 	 * returns the TraCI object associated to the given ID.
@@ -98,6 +164,31 @@ public class Repository<V extends TraciObject<?>> {
 		return objectCache.get(id);
 	}
 
+	/**
+	 * Returns the TraCI object associated to the given ID, synchronizing with
+	 * SUMO only if it is not known yet.
+	 * 
+	 * @param id
+	 * @return the requested object, or <code>null</code> if such object does
+	 *         not exist
+	 * @throws IOException
+	 */
+	V lookup(String id) throws IOException {
+		V object = objectCache.get(id);
+		if (object != null)
+			return object;
+		return getByID(id);
+	}
+
+	/**
+	 * @return the ID of the "get variable" command of the objects of this
+	 *         repository, that identifies them as the domain of a context
+	 *         subscription
+	 */
+	int getDomainID() {
+		return idListQuery.getCommandID();
+	}
+
 	/**
 	 * @return a {@link Set} made of all the string IDs of the objects
 	 *         represented by this repository.
@@ -105,40 +196,37 @@ public class Repository<V extends TraciObject<?>> {
 	 */
 	public Set<String> getIDs() throws IOException {
 		/*
-		 * If the ID list query wasn't made obsolete, just get the key set from
-		 * the object cache (i.e. the previously made object set).
+		 * The ID list query returns the same list instance until it is made
+		 * obsolete: as long as it doesn't change, the object cache is already
+		 * in sync with it.
 		 */
-		// if (idListQuery.hasValue()) {
-		// List<String> set1 = idListQuery.get();
-		// Set<String> set2 = objectCache.keySet();
-		// log.info(set1);
-		// log.info(set2);
-		// return set2;
-		// }
-		// boolean test = idListQuery.hasValue();
+		List<String> idList = idListQuery.get();
+		if (idList == syncedIDList)
+			return syncedIDs;
+
 		/*
 		 * Here we also update the cache.
 		 */
-		Set<String> idSet = new HashSet<String>(idListQuery.get());
-
-		final Set<String> cachedSet = objectCache.keySet();
+		Set<String> idSet = new HashSet<String>(idList);
 
-		if (!cachedSet.equals(idSet)) {
-			Set<String> added = Utils.getAddedItems(cachedSet, idSet);
-			for (String newID : added) {
+		objectCache.keySet().retainAll(idSet);
+		if (objectCache.size() < idSet.size()) {
+			for (String newID : idList) {
+				if (objectCache.containsKey(newID))
+					continue;
 				V newObject = factory.newObject(newID);
 				if (newObject == null)
 					throw new IllegalStateException("newObject == null");
+				newObject.setSubscriptionRegistry(subscriptions);
+				newObject.setCoalescedReads(coalescedReads);
+				newObject.setStepClock(stepClock);
 				objectCache.put(newID, newObject);
 			}
-
-			Set<String> removed = Utils.getRemovedItems(cachedSet, idSet);
-			for (String oldID : removed) {
-				objectCache.remove(oldID);
-			}
 		}
 
-		return Collections.unmodifiableSet(idSet);
+		syncedIDList = idList;
+		syncedIDs = Collections.unmodifiableSet(idSet);
+		return syncedIDs;
 	}
 
 	/**
@@ -151,6 +239,86 @@ public class Repository<V extends TraciObject<?>> {
 		return Collections.unmodifiableMap(objectCache);
 	}
 
+	/**
+	 * Subscribes to the given variables of all the objects in this repository,
+	 * with a single request to SUMO. For the repository of vehicles, vehicles
+	 * that enter the simulation afterwards are subscribed as well.
+	 * <p>
+	 * The variables must belong to the variable enum of the repository's
+	 * objects, e.g. {@link Vehicle.Variable} for vehicles.
+	 * 
+	 * @param variables
+	 *            the variables to subscribe to; an empty collection cancels
+	 *            all subscriptions
+	 * @throws IOException
+	 * @see TraciObject#querySubscribe(Collection)
+	 */
+	public void subscribeAll(Collection<? extends Enum<?>> variables) throws IOException {
+		MultiQuery multi = new MultiQuery(idListQuery.dos, idListQuery.dis);
+		for (V object : getAll().values())
+			multi.add(object.makeSubscribeQuery(variables));
+		multi.run();
+
+		subscribedVariables = variables.isEmpty() ? null : variables;
+	}
+
+	/**
+	 * Reads the given variables of all the objects in this repository, so
+	 * that they are cached until the next simulation step. All the reads are
+	 * sent in as few messages as possible, each one holding up to a few
+	 * kilobytes of requests; values that are already cached are not read
+	 * again.
+	 * <p>
+	 * The variables must belong to the variable enum of the repository's
+	 * objects, e.g. {@link Vehicle.Variable} for vehicles. Variables whose
+	 * read query takes parameters, like a position conversion, can't be
+	 * prefetched, since there is no value to read without them.
+	 * 
+	 * @param variables
+	 *            the variables to read
+	 * @throws IllegalArgumentException
+	 *             if the read query of one of the variables takes parameters
+	 * @throws IOException
+	 */
+	public void prefetch(Collection<? extends Enum<?>> variables) throws IOException {
+		Map<String, V> objects = getAll();
+		if (objects.isEmpty())
+			return;
+
+		V first = objects.values().iterator().next();
+		for (Enum<?> variable : variables) {
+			if (!first.getReadQueryUnchecked(variable).isSubscribable())
+				throw new IllegalArgumentException("can't prefetch " + variable);
+		}
+
+		MultiQuery multi = new MultiQuery(idListQuery.dos, idListQuery.dis);
+		int requestBytes = 0;
+		for (V object : objects.values()) {
+			for (Enum<?> variable : variables) {
+				ReadObjectVarQuery<?> q = object.getReadQueryUnchecked(variable);
+				if (q.hasValue())
+					continue;
+				int size = MultiQuery.requestSize(q);
+				if (!multi.isEmpty() && requestBytes + size > MultiQuery.MAX_REQUEST_BYTES) {
+					multi.run();
+					multi = new MultiQuery(idListQuery.dos, idListQuery.dis);
+					requestBytes = 0;
+				}
+				multi.add(q);
+				requestBytes += size;
+			}
+		}
+		multi.run();
+	}
+
+	/**
+	 * @return the variables passed to the last call of
+	 *         {@link #subscribeAll(Collection)}, or <code>null</code> if none
+	 */
+	Collection<? extends Enum<?>> getSubscribedVariables() {
+		return subscribedVariables;
+	}
+
 	/**
 	 * 
 	 * @return the {@link StringListQ} query associated to this repository.
@@ -211,8 +379,20 @@ public class Repository<V extends TraciObject<?>> {
 
 	static class Vehicles extends UpdatableRepository<Vehicle> {
 
+		private final Map<String, Vehicle> vehicles;
+		private final Map<String, Vehicle> known;
+		private final VehicleSynchronizer synchronizer;
+
+		/*
+		 * copies of the vehicles map, made when first requested after it
+		 * changed
+		 */
+		private Set<String> ids;
+		private Map<String, Vehicle> all;
+
 		Vehicles(final DataInputStream dis, final DataOutputStream dos, final Repository<Edge> edges,
-				final Repository<Lane> lanes, final Map<String, Vehicle> vehicles, final StringListQ idListQuery) {
+				final Repository<Lane> lanes, final Map<String, Vehicle> vehicles, final StringListQ idListQuery,
+				VehicleSynchronizer synchronizer) {
 			super(new ObjectFactory<Vehicle>() {
 				/**
 				 * This implementation does not make a new object; instead it
@@ -226,7 +406,69 @@ public class Repository<V extends TraciObject<?>> {
 					return vehicles.get(objectID);
 				}
 			}, idListQuery);
+			this.vehicles = vehicles;
+			known = Collections.unmodifiableMap(vehicles);
+			this.synchronizer = synchronizer;
+		}
+
+		/**
+		 * Called by the connection whenever it changes the vehicles map.
+		 */
+		void vehiclesChanged() {
+			ids = null;
+			all = null;
+		}
+
+		/**
+		 * Returns the IDs of the vehicles map, that the connection keeps up to
+		 * date. As for other repositories, the returned set doesn't reflect
+		 * later changes.
+		 * <p>
+		 * If nobody tracks the vehicles at every step, the map is brought up
+		 * to date only when this repository is used.
+		 */
+		@Override
+		public Set<String> getIDs() throws IOException {
+			synchronizer.synchronize();
+			if (ids == null)
+				ids = Collections.unmodifiableSet(new HashSet<String>(vehicles.keySet()));
+			return ids;
+		}
+
+		@Override
+		public Vehicle getByID(String id) throws IOException {
+			synchronizer.synchronize();
+			return vehicles.get(id);
+		}
+
+		@Override
+		public Map<String, Vehicle> getAll() throws IOException {
+			synchronizer.synchronize();
+			if (all == null)
+				all = Collections.unmodifiableMap(new HashMap<String, Vehicle>(vehicles));
+			return all;
+		}
 
+		/**
+		 * Returns the vehicles currently in the map, without bringing it up
+		 * to date; it may thus contain vehicles that already left.
+		 */
+		@Override
+		Collection<Vehicle> getKnownObjects() {
+			return known.values();
+		}
+
+		/**
+		 * Brings the map up to date only if the vehicle is not known.
+		 */
+		@Override
+		Vehicle lookup(String id) throws IOException {
+			Vehicle vehicle = vehicles.get(id);
+			if (vehicle == null) {
+				synchronizer.synchronize();
+				vehicle = vehicles.get(id);
+			}
+			return vehicle;
 		}
 	}
 
@@ -0,0 +1,54 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package it.polito.appeal.traci;
+
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+
+/**
+ * The stream of the requests sent to SUMO by a connection. It also refers to
+ * the connection's {@link QueryPipeline}, if any, so that the queries, that
+ * only know the streams of their connection, can wait for it before running
+ * synchronously.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+class RequestStream extends DataOutputStream {
+
+	private volatile QueryPipeline pipeline;
+
+	RequestStream(OutputStream out) {
+		super(out);
+	}
+
+	/**
+	 * @return the pipeline of the connection, or <code>null</code> if none
+	 *         was started
+	 */
+	QueryPipeline getPipeline() {
+		return pipeline;
+	}
+
+	void setPipeline(QueryPipeline pipeline) {
+		this.pipeline = pipeline;
+	}
+}
@@ -0,0 +1,322 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Counts the round trips of a connection caused by reading variables one at a
+ * time, i.e. by calling <code>get()</code> on a read query whose value isn't
+ * cached, and compares them with the batched ones, made by a
+ * {@link MultiQuery} or within a {@link CoalescedReads} scope.
+ * <p>
+ * Code that reads a variable of many objects in a loop makes a round trip
+ * per object, and is often much slower than needed. The monitor tells which
+ * variables are read this way and, if asked to
+ * {@link #setTrackCallSites(boolean) track call sites}, from where. It can
+ * also {@link #setWarningThreshold(int) log a warning} whenever a step sees
+ * too many of them.
+ * <p>
+ * Instances are obtained via {@link SumoTraciConnection#getRoundTripMonitor()}.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public class RoundTripMonitor {
+
+	private static final Logger log = LogManager.getLogger();
+
+	private static final String LIBRARY_PACKAGE = RoundTripMonitor.class.getPackage().getName();
+
+	/**
+	 * How many sources are named in a warning.
+	 */
+	private static final int WARNING_SOURCES = 3;
+
+	private long singleReads;
+	private long batchedRuns;
+	private long batchedQueries;
+
+	private int warningThreshold = 0;
+	private boolean trackCallSites = false;
+
+	/**
+	 * Single reads by command ID (first index) and variable ID (second
+	 * index), since the beginning and since the last step, along with the
+	 * class of the query that made them. The second-level arrays are
+	 * allocated on the first read of a command, and the sources are named
+	 * only when reported, so that counting a read is cheap.
+	 */
+	private final long[][] counts = new long[256][];
+	private final long[][] stepCounts = new long[256][];
+	private final Class<?>[][] queryClasses = new Class<?>[256][];
+
+	/**
+	 * Single reads by source, including the call site, when call sites are
+	 * tracked.
+	 */
+	private final Map<String, Long> callSites = new HashMap<String, Long>();
+	private final Map<String, Long> stepCallSites = new HashMap<String, Long>();
+	private int stepSingleReads;
+
+	/**
+	 * @return the number of round trips made to read a single value
+	 */
+	public synchronized long getSingleReads() {
+		return singleReads;
+	}
+
+	/**
+	 * @return the number of round trips made to run many queries at once
+	 */
+	public synchronized long getBatchedRuns() {
+		return batchedRuns;
+	}
+
+	/**
+	 * @return the number of queries run in batches
+	 */
+	public synchronized long getBatchedQueries() {
+		return batchedQueries;
+	}
+
+	/**
+	 * Sets how many single-value round trips are allowed in a simulation step
+	 * before a warning is logged.
+	 *
+	 * @param threshold
+	 *            the maximum number, or 0 to never warn (the default)
+	 */
+	public synchronized void setWarningThreshold(int threshold) {
+		if (threshold < 0)
+			throw new IllegalArgumentException("threshold can't be negative");
+		warningThreshold = threshold;
+	}
+
+	/**
+	 * @return the maximum number of single-value round trips in a step before
+	 *         a warning is logged, or 0 if warnings are disabled
+	 */
+	public synchronized int getWarningThreshold() {
+		return warningThreshold;
+	}
+
+	/**
+	 * Tells whether to remember the code location that caused each
+	 * single-value round trip. It requires to take a stack trace each time,
+	 * so it's disabled by default.
+	 *
+	 * @param track
+	 */
+	public synchronized void setTrackCallSites(boolean track) {
+		trackCallSites = track;
+	}
+
+	/**
+	 * @return <code>true</code> if call sites are tracked
+	 */
+	public synchronized boolean isTrackCallSites() {
+		return trackCallSites;
+	}
+
+	/**
+	 * Returns the sources of the single-value round trips, most frequent
+	 * first. A source is made of the query class and the IDs of the command
+	 * and variable it reads, followed by the call site if tracked.
+	 *
+	 * @return the number of round trips by source
+	 */
+	public synchronized Map<String, Long> getSingleReadSources() {
+		return sortByCount(collectSources(counts, callSites), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return a human-readable summary of the round trips, listing the most
+	 *         frequent sources of single-value ones
+	 */
+	public synchronized String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(singleReads).append(" single-value round trips, ")
+				.append(batchedRuns).append(" batched (")
+				.append(batchedQueries).append(" queries)");
+		for (Map.Entry<String, Long> entry : sortByCount(collectSources(counts, callSites), 20).entrySet()) {
+			sb.append(String.format("%n%8d  %s", entry.getValue(), entry.getKey()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Forgets all the round trips counted so far.
+	 */
+	public synchronized void reset() {
+		singleReads = 0;
+		batchedRuns = 0;
+		batchedQueries = 0;
+		for (long[] byVar : counts) {
+			if (byVar != null)
+				Arrays.fill(byVar, 0);
+		}
+		callSites.clear();
+		clearStep();
+	}
+
+	/**
+	 * Counts a round trip made to read the value of the given query alone.
+	 *
+	 * @param query
+	 */
+	synchronized void singleRead(ReadObjectVarQuery<?> query) {
+		singleReads++;
+		stepSingleReads++;
+
+		int commandID = query.getCommandID() & 0xff;
+		int varID = query.getVarID() & 0xff;
+		if (trackCallSites) {
+			// taking the stack trace costs much more than naming the source
+			String source = sourceName(query.getClass(), commandID, varID) + " at " + findCallSite();
+			increment(callSites, source);
+			if (warningThreshold > 0)
+				increment(stepCallSites, source);
+			return;
+		}
+
+		if (counts[commandID] == null) {
+			counts[commandID] = new long[256];
+			stepCounts[commandID] = new long[256];
+			queryClasses[commandID] = new Class<?>[256];
+		}
+		counts[commandID][varID]++;
+		if (warningThreshold > 0)
+			stepCounts[commandID][varID]++;
+		queryClasses[commandID][varID] = query.getClass();
+	}
+
+	/**
+	 * Counts a round trip made to run many queries at once.
+	 *
+	 * @param queries
+	 *            the number of queries
+	 */
+	synchronized void batchRun(int queries) {
+		batchedRuns++;
+		batchedQueries += queries;
+	}
+
+	/**
+	 * Called at the end of a simulation step, to warn about the single-value
+	 * round trips made since the previous one.
+	 *
+	 * @param time
+	 *            the simulation time, in ms
+	 */
+	synchronized void stepCompleted(int time) {
+		if (warningThreshold > 0 && stepSingleReads > warningThreshold) {
+			StringBuilder sb = new StringBuilder();
+			Map<String, Long> stepSources = collectSources(stepCounts, stepCallSites);
+			for (Map.Entry<String, Long> entry : sortByCount(stepSources, WARNING_SOURCES).entrySet())
+				sb.append("\n  ").append(entry.getValue()).append("x ").append(entry.getKey());
+			log.warn(stepSingleReads + " single-value round trips before time " + time
+					+ "; consider reading values with a MultiQuery or within "
+					+ "SumoTraciConnection.coalesceReads(). Most frequent:" + sb);
+		}
+		clearStep();
+	}
+
+	private void clearStep() {
+		for (long[] byVar : stepCounts) {
+			if (byVar != null)
+				Arrays.fill(byVar, 0);
+		}
+		stepCallSites.clear();
+		stepSingleReads = 0;
+	}
+
+	/**
+	 * Names the sources of the counted single reads.
+	 *
+	 * @param byID
+	 *            the counts by command and variable ID
+	 * @param bySource
+	 *            the counts of the reads whose call site was tracked
+	 * @return the number of round trips by source
+	 */
+	private Map<String, Long> collectSources(long[][] byID, Map<String, Long> bySource) {
+		Map<String, Long> out = new HashMap<String, Long>(bySource);
+		for (int commandID = 0; commandID < byID.length; commandID++) {
+			if (byID[commandID] == null)
+				continue;
+			for (int varID = 0; varID < 256; varID++) {
+				if (byID[commandID][varID] > 0)
+					out.put(sourceName(queryClasses[commandID][varID], commandID, varID), byID[commandID][varID]);
+			}
+		}
+		return out;
+	}
+
+	private static String sourceName(Class<?> queryClass, int commandID, int varID) {
+		return String.format("%s [0x%02x/0x%02x]", queryClass.getSimpleName(), commandID, varID);
+	}
+
+	/**
+	 * @return the first stack frame outside of this package
+	 */
+	private static String findCallSite() {
+		for (StackTraceElement frame : new Throwable().getStackTrace()) {
+			String className = frame.getClassName();
+			int lastDot = className.lastIndexOf('.');
+			if (lastDot < 0 || !className.substring(0, lastDot).equals(LIBRARY_PACKAGE))
+				return frame.toString();
+		}
+		return "unknown";
+	}
+
+	private static void increment(Map<String, Long> counts, String key) {
+		Long count = counts.get(key);
+		counts.put(key, count == null ? 1 : count + 1);
+	}
+
+	private static Map<String, Long> sortByCount(Map<String, Long> counts, int max) {
+		List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(counts.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			@Override
+			public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+				return b.getValue().compareTo(a.getValue());
+			}
+		});
+
+		Map<String, Long> out = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Long> entry : entries) {
+			if (out.size() == max)
+				break;
+			out.put(entry.getKey(), entry.getValue());
+		}
+		return out;
+	}
+}
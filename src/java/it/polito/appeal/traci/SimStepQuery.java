@@ -19,10 +19,15 @@
 
 package it.polito.appeal.traci;
 
+import it.polito.appeal.traci.protocol.Command;
 import it.polito.appeal.traci.protocol.Constants;
+import it.polito.appeal.traci.protocol.ResponseContainer;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 import de.uniluebeck.itm.tcpip.Storage;
 
@@ -30,6 +35,8 @@ class SimStepQuery extends ChangeStateQuery {
 
 	private int targetTime;
 
+	private List<Command> subResponses = Collections.emptyList();
+
 	SimStepQuery(DataInputStream dis, DataOutputStream dos) {
 		super(dis, dos, Constants.CMD_SIMSTEP2);
 	}
@@ -43,4 +50,20 @@ class SimStepQuery extends ChangeStateQuery {
 		content.writeInt(targetTime);
 	}
 
+	@Override
+	void pickResponses(Iterator<ResponseContainer> responseIterator)
+			throws TraCIException {
+		ResponseContainer respc = responseIterator.next();
+		Utils.checkStatusResponse(respc.getStatus(), Constants.CMD_SIMSTEP2);
+		if (respc.getSubResponses() != null)
+			subResponses = respc.getSubResponses();
+	}
+
+	/**
+	 * @return the subscription responses received with the step
+	 */
+	List<Command> getSubResponses() {
+		return subResponses;
+	}
+
 }
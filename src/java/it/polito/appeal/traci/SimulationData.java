@@ -40,7 +40,7 @@ public class SimulationData extends TraciObject<SimulationData.Variable>
 	private final DataInputStream dis;
 	private final DataOutputStream dos;
 
-	enum Variable {
+	enum Variable implements TraciObjectVariable {
 		CURRENT_SIM_TIME(Constants.VAR_TIME_STEP), NET_BOUNDARIES(
 				Constants.VAR_NET_BOUNDING_BOX), ;
 		public final int id;
@@ -48,6 +48,10 @@ public class SimulationData extends TraciObject<SimulationData.Variable>
 		private Variable(int id) {
 			this.id = id;
 		}
+
+		public int id() {
+			return id;
+		}
 	}
 
 	SimulationData(DataInputStream dis, DataOutputStream dos) {
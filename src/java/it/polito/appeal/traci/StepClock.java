@@ -0,0 +1,49 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+/**
+ * Counts the simulation steps of a connection. A {@link ValueReadQuery}
+ * bound to a clock remembers the count at which its value was read, and
+ * considers the value stale as soon as the count changes. This way, the
+ * values of all the variables that change at every step are invalidated at
+ * once, without visiting each query.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+class StepClock {
+
+	private volatile int count;
+
+	/**
+	 * @return the number of steps done so far
+	 */
+	int current() {
+		return count;
+	}
+
+	/**
+	 * Makes all the values read so far by the bound queries stale.
+	 */
+	void advance() {
+		count++;
+	}
+}
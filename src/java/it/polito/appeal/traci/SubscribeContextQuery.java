@@ -0,0 +1,221 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import it.polito.appeal.traci.protocol.Command;
+import it.polito.appeal.traci.protocol.ResponseContainer;
+import it.polito.appeal.traci.protocol.StatusResponse;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import de.uniluebeck.itm.tcpip.Storage;
+
+/**
+ * Subscribes to the neighbourhood of a TraCI object. Once subscribed, SUMO
+ * will send, at the end of every simulation step, the list of the objects of
+ * a given class (the <i>domain</i>, e.g. vehicles) that are within a given
+ * range from the subscribed object, together with the values of some of their
+ * variables.
+ * <p>
+ * The objects in range are available via {@link #getObjects()}, and the
+ * values of the subscribed variables are stored in the corresponding
+ * {@link ReadObjectVarQuery} of each object, as for
+ * {@link SubscribeVariableQuery}. Therefore, asking for e.g. the positions of
+ * all the vehicles around a point of interest doesn't need any further
+ * request to SUMO.
+ * <p>
+ * The subscription replaces any previous one of the same object on the same
+ * domain. A subscription with no variables cancels the current one.
+ * <p>
+ * Instances are obtained via
+ * {@link TraciObject#querySubscribeContext(Repository, double, java.util.Collection)}.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * @param <V>
+ *            the type of the objects in the domain
+ * @see <a href="http://sumo.dlr.de/wiki/TraCI/Object_Context_Subscription">TraCI docs</a>
+ */
+public class SubscribeContextQuery<V extends TraciObject<?>> extends Query {
+
+	/**
+	 * Distance between the ID of a "get variable" command and the ID of the
+	 * corresponding "subscribe context" command (e.g. 0xa4 and 0x84 for
+	 * vehicles).
+	 */
+	private static final int GET_TO_CONTEXT_OFFSET = -0x20;
+
+	private final DataInputStream dis;
+	private final DataOutputStream dos;
+	private final SubscriptionRegistry registry;
+	private final TraciObject<?> object;
+	private final int commandID;
+	private final Repository<V> domain;
+	private final double range;
+	private final List<Integer> varIDs;
+
+	private int beginTime = 0;
+	private int endTime = Integer.MAX_VALUE;
+
+	private Map<String, V> objects = Collections.emptyMap();
+
+	SubscribeContextQuery(DataInputStream dis, DataOutputStream dos,
+			SubscriptionRegistry registry, TraciObject<?> object,
+			int getCommandID, Repository<V> domain, double range,
+			List<Integer> varIDs) {
+		this.dis = dis;
+		this.dos = dos;
+		this.registry = registry;
+		this.object = object;
+		this.commandID = getCommandID + GET_TO_CONTEXT_OFFSET;
+		this.domain = domain;
+		this.range = range;
+		this.varIDs = new ArrayList<Integer>(varIDs);
+	}
+
+	/**
+	 * Sets the simulation time interval in which the subscription is valid.
+	 * By default, it never expires.
+	 *
+	 * @param beginTime
+	 *            the begin time, in ms
+	 * @param endTime
+	 *            the end time, in ms
+	 */
+	public void setInterval(int beginTime, int endTime) {
+		this.beginTime = beginTime;
+		this.endTime = endTime;
+	}
+
+	/**
+	 * @return the object at the center of the subscribed area
+	 */
+	public TraciObject<?> getObject() {
+		return object;
+	}
+
+	/**
+	 * @return the radius of the subscribed area, in meters
+	 */
+	public double getRange() {
+		return range;
+	}
+
+	/**
+	 * Returns the objects of the domain that were in range at the last
+	 * simulation step, indexed by ID.
+	 * 
+	 * @return an unmodifiable map, empty before the query is run
+	 */
+	public Map<String, V> getObjects() {
+		return objects;
+	}
+
+	void clearObjects() {
+		objects = Collections.emptyMap();
+	}
+
+	int getCommandID() {
+		return commandID;
+	}
+
+	int getDomainID() {
+		return domain.getDomainID();
+	}
+
+	@Override
+	List<Command> getRequests() {
+		Command cmd = new Command(commandID);
+		Storage content = cmd.content();
+		content.writeInt(beginTime);
+		content.writeInt(endTime);
+		content.writeStringASCII(object.getID());
+		content.writeUnsignedByte(domain.getDomainID());
+		content.writeDouble(range);
+		content.writeUnsignedByte(varIDs.size());
+		for (int varID : varIDs)
+			content.writeUnsignedByte(varID);
+		return Collections.singletonList(cmd);
+	}
+
+	@Override
+	void pickResponses(Iterator<ResponseContainer> responseIterator)
+			throws IOException {
+		ResponseContainer respc = responseIterator.next();
+		StatusResponse statusResp = respc.getStatus();
+		Utils.checkStatusResponse(statusResp, commandID);
+
+		registry.unregister(this);
+		if (varIDs.isEmpty())
+			return;
+
+		registry.register(this);
+
+		/*
+		 * SUMO replies with the current neighbourhood straight away
+		 */
+		Command resp = respc.getResponse();
+		if (resp != null)
+			registry.dispatch(resp);
+	}
+
+	/**
+	 * Reads the list of objects in range, and the values of their variables,
+	 * from a context subscription response. The header of the response must
+	 * have already been read.
+	 * 
+	 * @param resp
+	 * @param varCount
+	 * @param objectCount
+	 * @throws IOException
+	 */
+	void readContext(Command resp, int varCount, int objectCount)
+			throws IOException {
+		Storage content = resp.content();
+		Map<String, V> inRange = new HashMap<String, V>(objectCount * 2);
+		for (int i = 0; i < objectCount; i++) {
+			String objectID = domain.readID(content);
+			V inRangeObject = domain.lookup(objectID);
+			if (inRangeObject == null)
+				throw new TraCIException("object " + objectID
+						+ " in context of " + object.getID() + " not found");
+			SubscriptionRegistry.readVariables(inRangeObject, varCount, resp);
+			inRange.put(objectID, inRangeObject);
+		}
+		objects = Collections.unmodifiableMap(inRange);
+	}
+
+	/**
+	 * Sends the query to SUMO and get the response.
+	 * @throws IOException
+	 */
+	public void run() throws IOException {
+		MultiQuery multi = new MultiQuery(dos, dis);
+		multi.add(this);
+		multi.run();
+	}
+}
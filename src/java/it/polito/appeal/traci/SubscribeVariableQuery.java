@@ -0,0 +1,153 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import it.polito.appeal.traci.protocol.Command;
+import it.polito.appeal.traci.protocol.ResponseContainer;
+import it.polito.appeal.traci.protocol.StatusResponse;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import de.uniluebeck.itm.tcpip.Storage;
+
+/**
+ * Subscribes to one or more variables of a TraCI object. Once subscribed,
+ * SUMO will send the values of such variables at the end of every simulation
+ * step, and they will be stored in the corresponding
+ * {@link ReadObjectVarQuery} of the object. Therefore, reading those values
+ * won't need any further request to SUMO.
+ * <p>
+ * The subscription replaces any previous one of the same object. A
+ * subscription with no variables cancels the current one.
+ * <p>
+ * Instances are obtained via {@link TraciObject#querySubscribe(java.util.Collection)}
+ * and can be run alone, with {@link #run()}, or added to a {@link MultiQuery}
+ * to subscribe to many objects at once.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * @see <a href="http://sumo.dlr.de/wiki/TraCI/Object_Variable_Subscription">TraCI docs</a>
+ */
+public class SubscribeVariableQuery extends Query {
+
+	/**
+	 * Distance between the ID of a "get variable" command and the ID of the
+	 * corresponding "subscribe variable" command. All TraCI object classes
+	 * follow this numbering (e.g. 0xa4 and 0xd4 for vehicles).
+	 */
+	private static final int GET_TO_SUBSCRIBE_OFFSET = 0x30;
+
+	/**
+	 * Distance between the ID of a subscription command and the ID of its
+	 * response.
+	 */
+	static final int SUBSCRIBE_TO_RESPONSE_OFFSET = 0x10;
+
+	private final DataInputStream dis;
+	private final DataOutputStream dos;
+	private final SubscriptionRegistry registry;
+	private final TraciObject<?> object;
+	private final int commandID;
+	private final List<Integer> varIDs;
+
+	private int beginTime = 0;
+	private int endTime = Integer.MAX_VALUE;
+
+	SubscribeVariableQuery(DataInputStream dis, DataOutputStream dos,
+			SubscriptionRegistry registry, TraciObject<?> object,
+			int getCommandID, List<Integer> varIDs) {
+		this.dis = dis;
+		this.dos = dos;
+		this.registry = registry;
+		this.object = object;
+		this.commandID = getCommandID + GET_TO_SUBSCRIBE_OFFSET;
+		this.varIDs = new ArrayList<Integer>(varIDs);
+	}
+
+	/**
+	 * Sets the simulation time interval in which the subscription is valid.
+	 * By default, it never expires.
+	 *
+	 * @param beginTime
+	 *            the begin time, in ms
+	 * @param endTime
+	 *            the end time, in ms
+	 */
+	public void setInterval(int beginTime, int endTime) {
+		this.beginTime = beginTime;
+		this.endTime = endTime;
+	}
+
+	/**
+	 * @return the subscribed object
+	 */
+	public TraciObject<?> getObject() {
+		return object;
+	}
+
+	@Override
+	List<Command> getRequests() {
+		Command cmd = new Command(commandID);
+		Storage content = cmd.content();
+		content.writeInt(beginTime);
+		content.writeInt(endTime);
+		content.writeStringASCII(object.getID());
+		content.writeUnsignedByte(varIDs.size());
+		for (int varID : varIDs)
+			content.writeUnsignedByte(varID);
+		return Collections.singletonList(cmd);
+	}
+
+	@Override
+	void pickResponses(Iterator<ResponseContainer> responseIterator)
+			throws IOException {
+		ResponseContainer respc = responseIterator.next();
+		StatusResponse statusResp = respc.getStatus();
+		Utils.checkStatusResponse(statusResp, commandID);
+
+		registry.unregister(object);
+		if (varIDs.isEmpty())
+			return;
+
+		registry.register(commandID + SUBSCRIBE_TO_RESPONSE_OFFSET, object);
+
+		/*
+		 * SUMO replies with the current values straight away
+		 */
+		Command resp = respc.getResponse();
+		if (resp != null)
+			registry.dispatch(resp);
+	}
+
+	/**
+	 * Sends the query to SUMO and get the response.
+	 * @throws IOException
+	 */
+	public void run() throws IOException {
+		MultiQuery multi = new MultiQuery(dos, dis);
+		multi.add(this);
+		multi.run();
+	}
+}
@@ -0,0 +1,263 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import it.polito.appeal.traci.protocol.Command;
+import it.polito.appeal.traci.protocol.Constants;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.uniluebeck.itm.tcpip.Storage;
+import de.uniluebeck.itm.tcpip.StringPool;
+
+/**
+ * Keeps track of the TraCI objects that have an active variable or context
+ * subscription, and delivers the values pushed by SUMO to their read queries.
+ * <p>
+ * There is one instance per connection. Subscription responses arrive both
+ * as the response to a {@link SubscribeVariableQuery} or
+ * {@link SubscribeContextQuery} and as sub-responses of every simulation step.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+class SubscriptionRegistry {
+
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * Subscribed objects, grouped by response ID and then by object ID.
+	 */
+	private final Map<Integer, Map<String, TraciObject<?>>> subscribed = new HashMap<Integer, Map<String, TraciObject<?>>>();
+
+	/**
+	 * Context subscriptions, grouped by response ID and then by the ID of the
+	 * object at their center. An object may have one context subscription per
+	 * domain.
+	 */
+	private final Map<Integer, Map<String, List<SubscribeContextQuery<?>>>> contexts = new HashMap<Integer, Map<String, List<SubscribeContextQuery<?>>>>();
+
+	/**
+	 * The pool that the IDs of the subscribed objects resolve to.
+	 */
+	private final StringPool ids;
+
+	SubscriptionRegistry(StringPool ids) {
+		this.ids = ids;
+	}
+
+	void register(int responseID, TraciObject<?> object) {
+		Map<String, TraciObject<?>> byID = subscribed.get(responseID);
+		if (byID == null) {
+			byID = new HashMap<String, TraciObject<?>>();
+			subscribed.put(responseID, byID);
+		}
+		byID.put(object.getID(), object);
+	}
+
+	void register(SubscribeContextQuery<?> context) {
+		int responseID = context.getCommandID() + SubscribeVariableQuery.SUBSCRIBE_TO_RESPONSE_OFFSET;
+		Map<String, List<SubscribeContextQuery<?>>> byID = contexts.get(responseID);
+		if (byID == null) {
+			byID = new HashMap<String, List<SubscribeContextQuery<?>>>();
+			contexts.put(responseID, byID);
+		}
+		String objectID = context.getObject().getID();
+		List<SubscribeContextQuery<?>> byDomain = byID.get(objectID);
+		if (byDomain == null) {
+			byDomain = new ArrayList<SubscribeContextQuery<?>>(1);
+			byID.put(objectID, byDomain);
+		}
+		byDomain.add(context);
+	}
+
+	/**
+	 * Forgets any subscription of the given object, e.g. because it left the
+	 * simulation. Values pushed for it afterwards will be ignored.
+	 *
+	 * @param object
+	 */
+	void unregister(TraciObject<?> object) {
+		for (Map<String, TraciObject<?>> byID : subscribed.values()) {
+			if (byID.get(object.getID()) == object)
+				byID.remove(object.getID());
+		}
+		for (Map<String, List<SubscribeContextQuery<?>>> byID : contexts.values()) {
+			List<SubscribeContextQuery<?>> byDomain = byID.get(object.getID());
+			if (byDomain != null && byDomain.get(0).getObject() == object)
+				byID.remove(object.getID());
+		}
+	}
+
+	/**
+	 * Forgets the context subscription of the same object and domain of the
+	 * given one, that won't report any object in range afterwards.
+	 *
+	 * @param context
+	 */
+	void unregister(SubscribeContextQuery<?> context) {
+		int responseID = context.getCommandID() + SubscribeVariableQuery.SUBSCRIBE_TO_RESPONSE_OFFSET;
+		Map<String, List<SubscribeContextQuery<?>>> byID = contexts.get(responseID);
+		if (byID == null)
+			return;
+		String objectID = context.getObject().getID();
+		List<SubscribeContextQuery<?>> byDomain = byID.get(objectID);
+		if (byDomain == null)
+			return;
+		for (Iterator<SubscribeContextQuery<?>> it = byDomain.iterator(); it.hasNext();) {
+			SubscribeContextQuery<?> old = it.next();
+			if (old.getDomainID() == context.getDomainID()) {
+				old.clearObjects();
+				it.remove();
+			}
+		}
+		if (byDomain.isEmpty())
+			byID.remove(objectID);
+	}
+
+	/**
+	 * @return <code>true</code> if no object is subscribed
+	 */
+	boolean isEmpty() {
+		for (Map<String, TraciObject<?>> byID : subscribed.values()) {
+			if (!byID.isEmpty())
+				return false;
+		}
+		for (Map<String, List<SubscribeContextQuery<?>>> byID : contexts.values()) {
+			if (!byID.isEmpty())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Delivers the sub-responses of a simulation step.
+	 *
+	 * @param subResponses
+	 *            the sub-responses; may be <code>null</code>
+	 * @throws IOException
+	 */
+	void dispatch(List<Command> subResponses) throws IOException {
+		if (subResponses == null)
+			return;
+		for (Command resp : subResponses)
+			dispatch(resp);
+	}
+
+	/**
+	 * Reads a subscription response and stores each value in the cache of the
+	 * corresponding read query of the subscribed object(s).
+	 *
+	 * @param resp
+	 * @throws IOException
+	 */
+	void dispatch(Command resp) throws IOException {
+		if (contexts.containsKey(resp.id()))
+			dispatchContext(resp);
+		else
+			dispatchVariables(resp);
+	}
+
+	private void dispatchVariables(Command resp) throws TraCIException {
+		Map<String, TraciObject<?>> byID = subscribed.get(resp.id());
+		if (byID == null) {
+			if (log.isDebugEnabled())
+				log.debug("ignoring subscription response " + resp.id());
+			return;
+		}
+
+		Storage content = resp.content();
+		String objectID = content.readStringASCII(ids);
+		TraciObject<?> object = byID.get(objectID);
+		if (object == null) {
+			if (log.isDebugEnabled())
+				log.debug("ignoring subscription response for unknown object " + objectID);
+			return;
+		}
+
+		int varCount = content.readUnsignedByte();
+		readVariables(object, varCount, resp);
+	}
+
+	private void dispatchContext(Command resp) throws IOException {
+		Map<String, List<SubscribeContextQuery<?>>> byID = contexts.get(resp.id());
+
+		Storage content = resp.content();
+		String objectID = content.readStringASCII(ids);
+		int domainID = content.readUnsignedByte();
+		List<SubscribeContextQuery<?>> byDomain = byID.get(objectID);
+		if (byDomain != null) {
+			for (SubscribeContextQuery<?> context : byDomain) {
+				if (context.getDomainID() == domainID) {
+					int varCount = content.readUnsignedByte();
+					int objectCount = content.readInt();
+					context.readContext(resp, varCount, objectCount);
+					return;
+				}
+			}
+		}
+
+		if (log.isDebugEnabled())
+			log.debug("ignoring context subscription response for unknown object " + objectID);
+	}
+
+	/**
+	 * Reads the values of the given number of subscribed variables, and stores
+	 * them in the read queries of the given object.
+	 * 
+	 * @param object
+	 * @param varCount
+	 * @param resp
+	 * @throws TraCIException
+	 */
+	static void readVariables(TraciObject<?> object, int varCount, Command resp)
+			throws TraCIException {
+		Storage content = resp.content();
+		for (int i = 0; i < varCount; i++) {
+			int varID = content.readUnsignedByte();
+			int status = content.readUnsignedByte();
+			ReadObjectVarQuery<?> query = object.getReadQueryByVarID(varID);
+
+			if (status != Constants.RTYPE_OK) {
+				Utils.checkType(content, Constants.TYPE_STRING);
+				String description = content.readStringASCII();
+				log.warn("can't read subscribed variable " + varID + " of "
+						+ object.getID() + ": " + description);
+				if (query != null)
+					query.setObsolete();
+				continue;
+			}
+
+			if (query == null)
+				throw new TraCIException("subscribed variable " + varID
+						+ " not known by " + object.getID());
+
+			query.pickSubscribedValue(resp);
+		}
+	}
+}
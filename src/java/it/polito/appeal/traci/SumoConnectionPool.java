@@ -0,0 +1,205 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs many SUMO simulations of the same scenario in parallel, e.g. with
+ * different random seeds. Each simulation runs in its own SUMO process,
+ * listening on its own free TCP port, and is driven by a
+ * {@link SimulationTask} in a thread of a pool. At most a given number of
+ * simulations run at the same time, that by default is the number of
+ * available processors.
+ * <p>
+ * Example:
+ * 
+ * <pre>
+ * SumoConnectionPool pool = new SumoConnectionPool(&quot;test.sumo.cfg&quot;);
+ * List&lt;Integer&gt; arrived = pool.runAll(new int[] { 1, 2, 3 },
+ * 		new SumoConnectionPool.SimulationTask&lt;Integer&gt;() {
+ * 			public Integer run(SumoTraciConnection conn) throws Exception {
+ * 				...
+ * 			}
+ * 		});
+ * </pre>
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+public class SumoConnectionPool {
+
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * The code that drives a simulation and computes its result.
+	 * 
+	 * @param <R>
+	 *            the type of the result
+	 */
+	public interface SimulationTask<R> {
+
+		/**
+		 * Drives a simulation. The connection is already running, and will be
+		 * closed after this method returns.
+		 * 
+		 * @param conn
+		 * @return the result of the simulation
+		 * @throws Exception
+		 */
+		R run(SumoTraciConnection conn) throws Exception;
+	}
+
+	private final String configFile;
+	private final int maxParallel;
+	private final List<String[]> options = new ArrayList<String[]>();
+
+	/**
+	 * Creates a pool that runs as many simulations at the same time as the
+	 * available processors.
+	 * 
+	 * @param configFile
+	 *            the SUMO configuration file of all the simulations
+	 */
+	public SumoConnectionPool(String configFile) {
+		this(configFile, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a pool that runs at most the given number of simulations at
+	 * the same time. Since each SUMO process keeps a processor busy, the
+	 * number is capped to the available processors anyway.
+	 * 
+	 * @param configFile
+	 *            the SUMO configuration file of all the simulations
+	 * @param maxParallel
+	 *            the maximum number of simulations running at the same time
+	 */
+	public SumoConnectionPool(String configFile, int maxParallel) {
+		if (maxParallel < 1)
+			throw new IllegalArgumentException("maxParallel must be positive");
+		this.configFile = configFile;
+		this.maxParallel = Math.min(maxParallel, Runtime.getRuntime()
+				.availableProcessors());
+	}
+
+	/**
+	 * Adds a custom option to the SUMO command line of all the simulations.
+	 * 
+	 * @param option
+	 * @param value
+	 * @see SumoTraciConnection#addOption(String, String)
+	 */
+	public void addOption(String option, String value) {
+		options.add(new String[] { option, value });
+	}
+
+	/**
+	 * @return the maximum number of simulations running at the same time
+	 */
+	public int getMaxParallel() {
+		return maxParallel;
+	}
+
+	/**
+	 * Runs one simulation per random seed, and waits for all of them to end.
+	 * 
+	 * @param seeds
+	 *            the random seeds of the simulations
+	 * @param task
+	 *            the code that drives each simulation; it is run concurrently
+	 *            by many threads
+	 * @return the results of the simulations, in the same order as the seeds
+	 * @throws ExecutionException
+	 *             if any simulation failed; its cause is the one of the first
+	 *             failed simulation, in seed order. All the other simulations
+	 *             are run to the end anyway.
+	 * @throws InterruptedException
+	 */
+	public <R> List<R> runAll(int[] seeds, final SimulationTask<R> task)
+			throws InterruptedException, ExecutionException {
+		List<Callable<R>> simulations = new ArrayList<Callable<R>>(seeds.length);
+		for (final int seed : seeds) {
+			simulations.add(new Callable<R>() {
+				public R call() throws Exception {
+					return runSimulation(seed, task);
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+				maxParallel, Math.max(1, seeds.length)));
+		try {
+			List<Future<R>> futures = executor.invokeAll(simulations);
+			List<R> results = new ArrayList<R>(futures.size());
+			for (Future<R> future : futures)
+				results.add(future.get());
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private <R> R runSimulation(int seed, SimulationTask<R> task)
+			throws Exception {
+		SumoTraciConnection conn = newConnection(seed);
+		if (conn.isClosed())
+			conn.runServer();
+		try {
+			return task.run(conn);
+		} finally {
+			try {
+				conn.close();
+			} catch (Exception e) {
+				log.warn("can't close simulation with seed " + seed, e);
+			}
+		}
+	}
+
+	/**
+	 * Makes the (not yet running) connection of a simulation. Subclasses may
+	 * override it to further customize each connection, or to return a
+	 * connection to an already running server; the SUMO process is started
+	 * only if the returned connection isn't connected yet.
+	 * 
+	 * @param seed
+	 *            the random seed of the simulation
+	 * @return the connection
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	protected SumoTraciConnection newConnection(int seed) throws IOException,
+			InterruptedException {
+		SumoTraciConnection conn = new SumoTraciConnection(configFile, seed);
+		for (String[] option : options)
+			conn.addOption(option[0], option[1]);
+		return conn;
+	}
+}
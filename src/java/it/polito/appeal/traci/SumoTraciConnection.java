@@ -25,7 +25,10 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.ConnectException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -33,8 +36,11 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -44,8 +50,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.xml.sax.SAXException;
 
+import de.uniluebeck.itm.tcpip.StringPool;
+
 import it.polito.appeal.traci.ReadObjectVarQuery.StringListQ;
 import it.polito.appeal.traci.StreamLogger.StreamLoggerTyp;
+import it.polito.appeal.traci.metrics.Metrics;
+import it.polito.appeal.traci.metrics.MetricsListener;
 import it.polito.appeal.traci.protocol.Constants;
 
 /**
@@ -66,13 +76,19 @@ import it.polito.appeal.traci.protocol.Constants;
  * {@link #addVehicleLifecycleObserver(VehicleLifecycleObserver)} and
  * {@link #removeVehicleLifecycleObserver(VehicleLifecycleObserver)} allow you
  * to register and unregister objects that will be notified whenever a vehicle
- * enters or exits the simulation.
+ * enters or exits the simulation. If there are no such objects, the steps
+ * are cheaper, because the vehicles are not tracked; the vehicle repository
+ * is then brought up to date only when used.
  * <p>
  * The class looks for the system property
  * <code>{@value #SUMO_EXE_PROPERTY}</code> that should contain the full path of
  * the executable. If such property is not found, the "sumo" executable will be
  * searched in the system PATH instead.
  * <p>
+ * The traffic and the timings of the steps and queries of all the
+ * connections can be collected by installing a listener with
+ * {@link Metrics#setListener(MetricsListener)}.
+ * <p>
  * At simulation end, one should call {@link #close()} to gracefully close the
  * simulator and free any resources.
  * 
@@ -101,6 +117,15 @@ public class SumoTraciConnection {
 	private int randomSeed;
 	private Socket socket;
 
+	/**
+	 * Tells whether the connection was established and not closed yet. The
+	 * socket alone can't tell, since there is none when replaying a trace.
+	 */
+	private boolean connected;
+
+	private TraceRecorder traceRecorder;
+	private TraceReplay traceReplay;
+
 	/** The current simulation step, in ms. */
 	private int currentSimStep;
 	private Process sumoProcess;
@@ -114,7 +139,9 @@ public class SumoTraciConnection {
 	private List<String> args = new ArrayList<String>();
 
 	private DataInputStream dis;
-	private DataOutputStream dos;
+	private RequestStream dos;
+
+	private QueryPipeline queryPipeline;
 
 	private final Set<StepAdvanceListener> stepAdvanceListeners = new HashSet<StepAdvanceListener>();
 
@@ -122,7 +149,6 @@ public class SumoTraciConnection {
 
 	private Map<String, Vehicle> vehicles;
 	private StringListQ vehicleListQuery;
-	private Set<String> vehicleListBefore;
 
 	private AddVehicleQuery addVehicleQuery;
 	private RemoveVehicleQuery removeVehicleQuery;
@@ -150,6 +176,12 @@ public class SumoTraciConnection {
 
 	private SimulationData simData;
 
+	private SubscriptionRegistry subscriptions;
+	private CoalescedReads coalescedReads;
+	private StepClock stepClock;
+	private RoundTripMonitor roundTripMonitor;
+	private StringPool objectIDs;
+
 	/**
 	 * Creates an instance of this class that runs an own instance of SUMO. The
 	 * constructor won't run SUMO immediately; for that, call
@@ -217,6 +249,66 @@ public class SumoTraciConnection {
 		postConnect();
 	}
 
+	/**
+	 * Creates an instance of this class, connects to a running instance of
+	 * SUMO and records all the exchanged messages in the given file.
+	 * 
+	 * @param addr
+	 *            the IP address of the machine where SUMO runs
+	 * @param port
+	 *            the TCP port SUMO is listening for commands (see --remote-port
+	 *            option)
+	 * @param traceFile
+	 *            the file to record to; see {@link TraceRecorder}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public SumoTraciConnection(InetAddress addr, int port, File traceFile) throws IOException,
+			InterruptedException {
+
+		// Set TCP_NODELAY as enabled by default.
+		enableTcpNoDelay();
+
+		traceRecorder = new TraceRecorder(traceFile);
+		tryConnect(addr, port, null);
+		postConnect();
+	}
+
+	/**
+	 * Creates an instance of this class that plays back a recorded session
+	 * instead of connecting to SUMO. The client code must make the same calls,
+	 * in the same order, as in the recorded session; see {@link TraceReplay}.
+	 * <p>
+	 * The replay is closed along with the connection.
+	 * 
+	 * @param replay
+	 * @throws IOException
+	 *             if the session doesn't start as recorded
+	 */
+	public SumoTraciConnection(TraceReplay replay) throws IOException {
+		traceReplay = replay;
+		postConnect(replay.getInputStream(), replay.getOutputStream());
+	}
+
+	/**
+	 * Records all the messages that will be exchanged with SUMO in the given
+	 * file, so that the session can be played back later with a
+	 * {@link TraceReplay}. Must be called before {@link #runServer()}.
+	 * 
+	 * @param traceFile
+	 * @throws IOException
+	 *             if the file can't be created
+	 * @throws IllegalStateException
+	 *             if the connection was already established
+	 */
+	public void recordTrace(File traceFile) throws IOException {
+		if (connected)
+			throw new IllegalStateException("connection already established");
+		if (traceRecorder != null)
+			traceRecorder.close();
+		traceRecorder = new TraceRecorder(traceFile);
+	}
+
 	/**
 	 * Adds a custom option to the SUMO command line before executing it.
 	 * 
@@ -364,31 +456,50 @@ public class SumoTraciConnection {
 	}
 
 	private void postConnect() throws IOException {
-		dis = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
-		dos = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		InputStream in = socket.getInputStream();
+		OutputStream out = socket.getOutputStream();
+		if (traceRecorder != null) {
+			in = traceRecorder.recordResponses(in);
+			out = traceRecorder.recordRequests(out);
+		}
+		postConnect(in, out);
+	}
+
+	private void postConnect(InputStream in, OutputStream out) throws IOException {
+		dis = new DataInputStream(new BufferedInputStream(in));
+		dos = new RequestStream(new BufferedOutputStream(out));
+		connected = true;
 
 		closeQuery = new CloseQuery(dis, dos);
+		objectIDs = new StringPool();
+		subscriptions = new SubscriptionRegistry(objectIDs);
+		coalescedReads = new CoalescedReads();
+		roundTripMonitor = new RoundTripMonitor();
+		coalescedReads.setRoundTripMonitor(roundTripMonitor);
+		stepClock = new StepClock();
 		simData = new SimulationData(dis, dos);
+		simData.setSubscriptionRegistry(subscriptions);
 
 		currentSimStep = simData.queryCurrentSimTime().get();
 
 		vehicles = new HashMap<String, Vehicle>();
 
 		edgeRepo = new Repository.Edges(dis, dos, newIDListQuery(Constants.CMD_GET_EDGE_VARIABLE));
-		addStepAdvanceListener(edgeRepo);
 
 		laneRepo = new Repository.Lanes(dis, dos, edgeRepo, newIDListQuery(Constants.CMD_GET_LANE_VARIABLE));
 
 		vehicleListQuery = newIDListQuery(Constants.CMD_GET_VEHICLE_VARIABLE);
-		addStepAdvanceListener(new StepAdvanceListener() {
-			public void nextStep(double step) {
-				vehicleListQuery.setObsolete();
-			}
-		});
-		vehicleListBefore = new HashSet<String>(vehicleListQuery.get());
-
-		vehicleRepo = new Repository.Vehicles(dis, dos, edgeRepo, laneRepo, vehicles, vehicleListQuery);
-		addStepAdvanceListener(vehicleRepo);
+		vehicleListQuery.setStepClock(stepClock);
+		vehicleListQuery.setStringPool(objectIDs);
+		for (String vehicleID : vehicleListQuery.get())
+			vehicles.put(vehicleID, newVehicle(vehicleID));
+
+		vehicleRepo = new Repository.Vehicles(dis, dos, edgeRepo, laneRepo, vehicles, vehicleListQuery,
+				new VehicleSynchronizer() {
+					public void synchronize() throws IOException {
+						syncVehicles(false);
+					}
+				});
 
 		addVehicleQuery = new AddVehicleQuery(dis, dos, vehicleRepo);
 
@@ -398,26 +509,32 @@ public class SumoTraciConnection {
 
 		inductionLoopRepo = new Repository.InductionLoops(dis, dos, laneRepo, vehicleRepo,
 				newIDListQuery(Constants.CMD_GET_INDUCTIONLOOP_VARIABLE));
-		addStepAdvanceListener(inductionLoopRepo);
 
 		trafficLightRepo = new Repository.TrafficLights(dis, dos, laneRepo,
 				newIDListQuery(Constants.CMD_GET_TL_VARIABLE));
-		addStepAdvanceListener(trafficLightRepo);
 
 		vehicleTypeRepo = new Repository.VehicleTypes(dis, dos, newIDListQuery(Constants.CMD_GET_VEHICLETYPE_VARIABLE));
 
 		memeDetectorRepo = new Repository.MeMeDetectors(dis, dos, vehicleRepo,
 				newIDListQuery(Constants.CMD_GET_MULTI_ENTRY_EXIT_DETECTOR_VARIABLE));
-		addStepAdvanceListener(memeDetectorRepo);
 
 		laarDetectorRepo = new Repository.LaArDetectors(dis, dos, laneRepo, vehicleRepo,
 				newIDListQuery(Constants.CMD_GET_LANE_AREA_DETECTOR_VARIABLE));
-		addStepAdvanceListener(laarDetectorRepo);
 
 		routeRepo = new Repository.Routes(dis, dos, edgeRepo, newIDListQuery(Constants.CMD_GET_ROUTE_VARIABLE));
 
 		addRouteQuery = new AddRouteQuery(dis, dos, routeRepo);
 
+		for (Repository<?> repo : new Repository<?>[] { edgeRepo, laneRepo, vehicleRepo, poiRepo,
+				inductionLoopRepo, trafficLightRepo, vehicleTypeRepo, memeDetectorRepo, laarDetectorRepo,
+				routeRepo }) {
+			repo.setSubscriptionRegistry(subscriptions);
+			repo.setCoalescedReads(coalescedReads);
+			repo.setStepClock(stepClock);
+			repo.setStringPool(objectIDs);
+			coalescedReads.addDomain(repo);
+		}
+
 		/*
 		 * TODO add initializers for remaining repositories
 		 */
@@ -533,12 +650,31 @@ public class SumoTraciConnection {
 		 * closed. This would make the loading of the CloseQuery class
 		 * impossible at this point.
 		 */
-		if (socket != null) {
+		if (connected) {
+			if (queryPipeline != null) {
+				queryPipeline.drain();
+				queryPipeline.shutdown();
+				queryPipeline = null;
+			}
+			if (pendingStep != null) {
+				pendingStep.multi.readResponses();
+				pendingStep = null;
+			}
 			if (closeQuery != null) {
 				closeQuery.run();
 				closeQuery = null;
 			}
 			socket = null;
+			connected = false;
+		}
+
+		if (traceRecorder != null) {
+			traceRecorder.close();
+			traceRecorder = null;
+		}
+		if (traceReplay != null) {
+			traceReplay.close();
+			traceReplay = null;
 		}
 
 		if (sumoProcess != null) {
@@ -559,7 +695,7 @@ public class SumoTraciConnection {
 	 * @see #close()
 	 */
 	public boolean isClosed() {
-		return socket == null || socket.isClosed();
+		return !connected || (socket != null && socket.isClosed());
 	}
 
 	/**
@@ -587,29 +723,44 @@ public class SumoTraciConnection {
 	 *             if the method is called when the connection is closed
 	 */
 	public void nextSimStep() throws IOException, IllegalStateException {
-		if (isClosed())
-			throw new IllegalStateException("connection is closed");
-
-		currentSimStep += steplength;
-
-		/*
-		 * forces querying of vehicle IDs when requested
-		 */
-		simData.nextStep(currentSimStep);
+		beginSimStep();
+		endSimStep();
+	}
 
-		/*
-		 * constructs a multi-query that advances one step, reads the list of
-		 * active vehicles, the list of teleport-starting and teleport-ending
-		 */
+	/**
+	 * The queries of a simulation step whose request was sent, but whose
+	 * response was not read yet. If the vehicles are not tracked in this
+	 * step, only the step itself is requested.
+	 */
+	private static class PendingStep {
+		final MultiQuery multi;
+		final SimStepQuery ssq;
+		final boolean tracked;
+		final long startedAt = System.nanoTime();
+		StringListQ departedQ;
+		StringListQ arrivedQ;
 		StringListQ teleportStartQ;
 		StringListQ teleportEndQ;
-		MultiQuery multi = new MultiQuery(dos, dis);
-		{ // begin multi-query
-			SimStepQuery ssq = new SimStepQuery(dis, dos);
-			ssq.setTargetTime(currentSimStep);
+
+		PendingStep(DataInputStream dis, DataOutputStream dos, int targetTime, boolean tracked,
+				StringPool objectIDs) {
+			multi = new MultiQuery(dos, dis);
+			this.tracked = tracked;
+
+			ssq = new SimStepQuery(dis, dos);
+			ssq.setTargetTime(targetTime);
 			multi.add(ssq);
 
-			multi.add(vehicleListQuery);
+			if (!tracked)
+				return;
+
+			departedQ = new StringListQ(dis, dos, Constants.CMD_GET_SIM_VARIABLE, "",
+					Constants.VAR_DEPARTED_VEHICLES_IDS);
+			multi.add(departedQ);
+
+			arrivedQ = new StringListQ(dis, dos, Constants.CMD_GET_SIM_VARIABLE, "",
+					Constants.VAR_ARRIVED_VEHICLES_IDS);
+			multi.add(arrivedQ);
 
 			teleportStartQ = new StringListQ(dis, dos, Constants.CMD_GET_SIM_VARIABLE, "",
 					Constants.VAR_TELEPORT_STARTING_VEHICLES_IDS);
@@ -618,49 +769,135 @@ public class SumoTraciConnection {
 			teleportEndQ = new StringListQ(dis, dos, Constants.CMD_GET_SIM_VARIABLE, "",
 					Constants.VAR_TELEPORT_ENDING_VEHICLES_IDS);
 			multi.add(teleportEndQ);
-		} // end multi-query
-		multi.run();
+
+			for (StringListQ q : new StringListQ[] { departedQ, arrivedQ, teleportStartQ, teleportEndQ })
+				q.setStringPool(objectIDs);
+		}
+	}
+
+	private PendingStep pendingStep;
+
+	/**
+	 * <code>true</code> if some steps were run without tracking the vehicles,
+	 * so that the vehicles map must be reconciled with SUMO before being used.
+	 */
+	private boolean vehiclesStale;
+
+	/**
+	 * The vehicles seen starting a teleport and not ending it yet. They are
+	 * missing from SUMO's vehicle list, but must not be taken for arrived.
+	 */
+	private final Set<String> teleporting = new HashSet<String>();
+
+	/**
+	 * First half of {@link #nextSimStep()}: sends the request to advance by a
+	 * step, without waiting for SUMO to simulate it. It must be followed by
+	 * {@link #endSimStep()} before running any other query on this
+	 * connection.
+	 * 
+	 * @throws IOException
+	 * @throws IllegalStateException
+	 *             if the connection is closed, or a step is already pending
+	 * @see LockStepDriver
+	 */
+	void beginSimStep() throws IOException, IllegalStateException {
+		if (isClosed())
+			throw new IllegalStateException("connection is closed");
+		if (pendingStep != null)
+			throw new IllegalStateException("a step is already pending");
+
+		if (queryPipeline != null)
+			queryPipeline.drain();
 
 		/*
-		 * now, compute the difference sets (departed/arrived) and teleports
+		 * the departed/arrived lists only tell what happened in the last
+		 * step, so the vehicles map must be up to date before tracking them
+		 * again
 		 */
-		List<String> teleportStart = teleportStartQ.get();
-		List<String> teleportEnd = teleportEndQ.get();
+		boolean tracked = isVehicleTrackingNeeded();
+		if (tracked)
+			syncVehicles(false);
 
-		Set<String> vehicleListAfter = new HashSet<String>(vehicleListQuery.get());
+		currentSimStep += steplength;
 
-		Set<String> departedIDs = Utils.getAddedItems(vehicleListBefore, vehicleListAfter);
-		departedIDs.removeAll(teleportEnd);
+		/*
+		 * makes obsolete all the values that change over time
+		 */
+		stepClock.advance();
 
-		Set<String> arrivedIDs = Utils.getRemovedItems(vehicleListBefore, vehicleListAfter);
-		arrivedIDs.removeAll(teleportStart);
+		/*
+		 * forces querying of vehicle IDs when requested
+		 */
+		simData.nextStep(currentSimStep);
 
 		/*
-		 * now update the vehicles map and notify listeners
+		 * a multi-query that advances one step, reads the lists of departed,
+		 * arrived, teleport-starting and teleport-ending vehicles
 		 */
+		PendingStep step = new PendingStep(dis, dos, currentSimStep, tracked, objectIDs);
+		step.multi.writeRequests();
+		pendingStep = step;
+	}
 
-		for (String arrivedID : arrivedIDs) {
-			Vehicle arrived = vehicles.remove(arrivedID);
-			if (log.isDebugEnabled())
-				log.debug(" arrivedID = " + arrivedID + " Vehicle = " + arrived);
-			removeStepAdvanceListener(arrived);
-			for (VehicleLifecycleObserver observer : vehicleLifecycleObservers) {
-				observer.vehicleArrived(arrived);
-			}
+	/**
+	 * Second half of {@link #nextSimStep()}: waits for SUMO to simulate the
+	 * step requested by {@link #beginSimStep()}, then updates the vehicles
+	 * and notifies the listeners.
+	 * 
+	 * @throws IOException
+	 * @throws IllegalStateException
+	 *             if no step is pending
+	 */
+	void endSimStep() throws IOException, IllegalStateException {
+		PendingStep step = pendingStep;
+		if (step == null)
+			throw new IllegalStateException("no step is pending");
+		pendingStep = null;
+
+		step.multi.readResponses();
+
+		if (!step.tracked) {
+			vehiclesStale = true;
+			completeStep(step.ssq);
+			recordStep(step.startedAt);
+			return;
 		}
-		for (String departedID : departedIDs) {
-			Vehicle departed = new Vehicle(dis, dos, departedID, edgeRepo, laneRepo);
-			if (log.isDebugEnabled())
-				log.debug(" departedID = " + departedID + " Vehicle = " + departed);
-			addStepAdvanceListener(departed);
-			vehicles.put(departedID, departed);
+
+		/*
+		 * now, compute the departed/arrived sets, leaving out the vehicles
+		 * that were only teleported and those that entered and left the
+		 * simulation within this step
+		 */
+		List<String> teleportStart = step.teleportStartQ.get();
+		List<String> teleportEnd = step.teleportEndQ.get();
+
+		/*
+		 * a vehicle ending a teleport is new only if it was taken for
+		 * arrived, i.e. if the teleport started while it was not tracked
+		 */
+		Set<String> departedIDs = new HashSet<String>(step.departedQ.get());
+		for (String teleportEnding : teleportEnd) {
+			if (vehicles.containsKey(teleportEnding))
+				departedIDs.remove(teleportEnding);
+			else
+				departedIDs.add(teleportEnding);
 		}
-		for (String departedID : departedIDs) {
-			for (VehicleLifecycleObserver observer : vehicleLifecycleObservers) {
-				observer.vehicleDeparted(vehicles.get(departedID));
+		teleporting.addAll(teleportStart);
+		teleporting.removeAll(teleportEnd);
+
+		Set<String> arrivedIDs = new HashSet<String>(step.arrivedQ.get());
+		arrivedIDs.removeAll(teleportStart);
+
+		if (!arrivedIDs.isEmpty()) {
+			for (Iterator<String> it = departedIDs.iterator(); it.hasNext();) {
+				String departedID = it.next();
+				if (!vehicles.containsKey(departedID) && arrivedIDs.remove(departedID))
+					it.remove();
 			}
 		}
 
+		updateVehicles(departedIDs, arrivedIDs, true);
+
 		for (VehicleLifecycleObserver observer : vehicleLifecycleObservers) {
 
 			for (String teleportStarting : teleportStart) {
@@ -683,13 +920,226 @@ public class SumoTraciConnection {
 			}
 		}
 
+		completeStep(step.ssq);
+		subscribeDeparted(departedIDs);
+		recordStep(step.startedAt);
+	}
+
+	/**
+	 * Advances the simulation by the given number of steps, with a single
+	 * request to SUMO.
+	 * 
+	 * @param steps
+	 *            the number of steps
+	 * @throws IOException
+	 * @throws IllegalStateException
+	 *             if the method is called when the connection is closed
+	 * @see #runUntil(int)
+	 */
+	public void nextSimStep(int steps) throws IOException, IllegalStateException {
+		if (steps < 1)
+			throw new IllegalArgumentException("steps must be positive");
+		if (steps == 1)
+			nextSimStep();
+		else
+			runUntil(currentSimStep + steps * steplength);
+	}
+
+	/**
+	 * Advances the simulation up to the given time, with a single request to
+	 * SUMO, e.g. to skip a warm-up phase quickly.
+	 * <p>
+	 * Unlike calling {@link #nextSimStep()} many times, the vehicles are not
+	 * tracked step by step: only the vehicles that entered or left the
+	 * simulation in the meantime are reported to the
+	 * {@link VehicleLifecycleObserver}s, and no teleport is reported. The
+	 * {@link StepAdvanceListener}s are notified once.
+	 * 
+	 * @param time
+	 *            the target time, in ms; it should be a multiple of the step
+	 *            length
+	 * @throws IOException
+	 * @throws IllegalStateException
+	 *             if the method is called when the connection is closed
+	 * @throws IllegalArgumentException
+	 *             if the target time is not after the current one
+	 */
+	public void runUntil(int time) throws IOException, IllegalStateException {
+		if (isClosed())
+			throw new IllegalStateException("connection is closed");
+		if (pendingStep != null)
+			throw new IllegalStateException("a step is pending");
+		if (time <= currentSimStep)
+			throw new IllegalArgumentException("time " + time
+					+ " is not after the current time " + currentSimStep);
+
+		long startedAt = System.nanoTime();
+
+		if (queryPipeline != null)
+			queryPipeline.drain();
+
+		currentSimStep = time;
+		stepClock.advance();
+		simData.nextStep(currentSimStep);
+
+		/*
+		 * if someone tracks the vehicles, the vehicle list is read along
+		 * with the step, to reconcile the vehicles map once
+		 */
+		boolean tracked = isVehicleTrackingNeeded();
+		MultiQuery multi = new MultiQuery(dos, dis);
+		SimStepQuery ssq = new SimStepQuery(dis, dos);
+		ssq.setTargetTime(time);
+		multi.add(ssq);
+		if (tracked)
+			multi.add(vehicleListQuery);
+		multi.run();
+
+		vehiclesStale = true;
+		if (tracked)
+			syncVehicles(true);
+
+		completeStep(ssq);
+		recordStep(startedAt);
+	}
+
+	/**
+	 * @return <code>true</code> if the vehicles must be tracked at every
+	 *         step, because someone is notified when they enter or leave the
+	 *         simulation. Otherwise, the vehicles map is reconciled only when
+	 *         the vehicle repository is used.
+	 */
+	private boolean isVehicleTrackingNeeded() {
+		return !vehicleLifecycleObservers.isEmpty()
+				|| vehicleRepo.getSubscribedVariables() != null;
+	}
+
+	/**
+	 * Reconciles the vehicles map with the list of vehicles in SUMO, if some
+	 * steps were run without tracking them.
+	 * 
+	 * @param notify
+	 *            <code>true</code> to report the vehicles that entered or
+	 *            left the simulation to the {@link VehicleLifecycleObserver}s
+	 * @throws IOException
+	 */
+	private void syncVehicles(boolean notify) throws IOException {
+		if (!vehiclesStale)
+			return;
+		vehiclesStale = false;
+
+		Set<String> departedIDs = new HashSet<String>(vehicleListQuery.get());
+		teleporting.removeAll(departedIDs);
+		Set<String> arrivedIDs = new HashSet<String>(vehicles.keySet());
+		arrivedIDs.removeAll(departedIDs);
+		/*
+		 * vehicles whose teleport started while they were not tracked can't
+		 * be told from arrived ones; they are added back when it ends
+		 */
+		arrivedIDs.removeAll(teleporting);
+		departedIDs.removeAll(vehicles.keySet());
+
+		updateVehicles(departedIDs, arrivedIDs, notify);
+		subscribeDeparted(departedIDs);
+	}
+
+	/**
+	 * Updates the vehicles map, and optionally notifies the
+	 * {@link VehicleLifecycleObserver}s.
+	 */
+	private void updateVehicles(Set<String> departedIDs, Set<String> arrivedIDs,
+			boolean notify) {
+		if (!departedIDs.isEmpty() || !arrivedIDs.isEmpty())
+			vehicleRepo.vehiclesChanged();
+		for (String arrivedID : arrivedIDs) {
+			teleporting.remove(arrivedID);
+			Vehicle arrived = vehicles.remove(arrivedID);
+			if (arrived == null) {
+				log.warn(" Arrived vehicle " + arrivedID + " not found!");
+				continue;
+			}
+			if (log.isDebugEnabled())
+				log.debug(" arrivedID = " + arrivedID + " Vehicle = " + arrived);
+			subscriptions.unregister(arrived);
+			if (notify) {
+				for (VehicleLifecycleObserver observer : vehicleLifecycleObservers) {
+					observer.vehicleArrived(arrived);
+				}
+			}
+		}
+		for (String departedID : departedIDs) {
+			Vehicle departed = newVehicle(departedID);
+			if (log.isDebugEnabled())
+				log.debug(" departedID = " + departedID + " Vehicle = " + departed);
+			vehicles.put(departedID, departed);
+		}
+		if (notify) {
+			for (String departedID : departedIDs) {
+				for (VehicleLifecycleObserver observer : vehicleLifecycleObservers) {
+					observer.vehicleDeparted(vehicles.get(departedID));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies the step listeners and delivers the subscribed values after
+	 * SUMO simulated up to the current time.
+	 */
+	private void completeStep(SimStepQuery ssq) throws IOException {
 		/*
 		 * notify any interested listener that we advances one step
 		 */
+		MetricsListener metrics = Metrics.getListener();
+		long notifyStart = (metrics != null) ? System.nanoTime() : 0;
 		for (StepAdvanceListener listener : stepAdvanceListeners)
 			listener.nextStep(currentSimStep);
+		if (metrics != null)
+			metrics.listenersNotified(System.nanoTime() - notifyStart);
 
-		vehicleListBefore = vehicleListAfter;
+		/*
+		 * fill the caches with the values of subscribed variables, after the
+		 * listeners above, that may clear them
+		 */
+		subscriptions.dispatch(ssq.getSubResponses());
+	}
+
+	/**
+	 * Reports the end of a step to the round trip monitor and, if metrics are
+	 * enabled, its duration.
+	 */
+	private void recordStep(long startedAt) {
+		roundTripMonitor.stepCompleted(currentSimStep);
+		MetricsListener metrics = Metrics.getListener();
+		if (metrics != null)
+			metrics.stepCompleted(System.nanoTime() - startedAt);
+	}
+
+	/**
+	 * Makes the object of a vehicle that entered the simulation, and binds it
+	 * to this connection.
+	 */
+	private Vehicle newVehicle(String vehicleID) {
+		Vehicle vehicle = new Vehicle(dis, dos, vehicleID, edgeRepo, laneRepo);
+		vehicle.setSubscriptionRegistry(subscriptions);
+		vehicle.setCoalescedReads(coalescedReads);
+		vehicle.setStepClock(stepClock);
+		return vehicle;
+	}
+
+	/**
+	 * Subscribes the vehicles that just entered the simulation to the
+	 * variables set via {@link Repository#subscribeAll(Collection)}.
+	 */
+	private void subscribeDeparted(Set<String> departedIDs) throws IOException {
+		Collection<? extends Enum<?>> variables = vehicleRepo.getSubscribedVariables();
+		if (variables == null || departedIDs.isEmpty())
+			return;
+
+		MultiQuery multi = new MultiQuery(dos, dis);
+		for (String departedID : departedIDs)
+			multi.add(vehicles.get(departedID).makeSubscribeQuery(variables));
+		multi.run();
 	}
 
 	/**
@@ -743,6 +1193,53 @@ public class SumoTraciConnection {
 		return simData;
 	}
 
+	/**
+	 * Opens a scope in which reads of uncached variables are coalesced with
+	 * the same variable of the other objects of the same class, so that
+	 * iterating over a repository costs a single round trip. The scope must be
+	 * closed when done, e.g. with a try-with-resources statement.
+	 * 
+	 * @return the opened scope
+	 * @throws IllegalStateException
+	 *             if the connection is closed
+	 * @see CoalescedReads
+	 */
+	public CoalescedReads coalesceReads() {
+		if (isClosed())
+			throw new IllegalStateException("connection is closed");
+
+		return coalescedReads.open();
+	}
+
+	/**
+	 * Returns the monitor that counts the round trips of this connection
+	 * caused by reading variables one at a time, to spot code that would be
+	 * faster with a {@link MultiQuery} or {@link #coalesceReads()}.
+	 *
+	 * @return the round trip monitor
+	 */
+	public RoundTripMonitor getRoundTripMonitor() {
+		return roundTripMonitor;
+	}
+
+	/**
+	 * Returns the {@link QueryPipeline} of this connection, that runs queries
+	 * asynchronously. Its reader thread is started when a query is submitted,
+	 * and stops when no response has arrived for a few seconds.
+	 * 
+	 * @return the query pipeline of this connection
+	 * @throws IllegalStateException
+	 *             if the connection is closed
+	 */
+	public QueryPipeline getQueryPipeline() {
+		if (isClosed())
+			throw new IllegalStateException("connection is closed");
+
+		if (queryPipeline == null)
+			queryPipeline = new QueryPipeline(dis, dos);
+		return queryPipeline;
+	}
+
 	/**
 	 * 
 	 * @return the {@link Repository} containing all the lanes the network is
@@ -867,7 +1364,17 @@ public class SumoTraciConnection {
 	 *         connection.
 	 */
 	public MultiQuery makeMultiQuery() {
-		return new MultiQuery(dos, dis);
+		MultiQuery multi = new MultiQuery(dos, dis);
+		multi.setRoundTripMonitor(roundTripMonitor);
+		return multi;
+	}
+
+	/**
+	 * @return a new {@link VehicleSnapshot} bound to this server connection,
+	 *         that reads the state of all the vehicles at once.
+	 */
+	public VehicleSnapshot makeVehicleSnapshot() {
+		return new VehicleSnapshot(dis, dos, vehicleRepo);
 	}
 
 	/**
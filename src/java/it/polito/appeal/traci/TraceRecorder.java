@@ -0,0 +1,223 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Appends all the messages exchanged with SUMO to a trace file, that can be
+ * played back later by a {@link TraceReplay}.
+ * <p>
+ * The file is written through memory-mapped regions, so that recording costs
+ * little more than a copy of each message. It is made of a header (the
+ * {@link #MAGIC} number) followed by a record per message, in the order they
+ * were sent or received:
+ * <ul>
+ * <li>the kind of message, as a byte: {@link #REQUEST} or {@link #RESPONSE};</li>
+ * <li>the time the message was recorded, in ns since the recording began, as
+ * a long;</li>
+ * <li>the message as sent on the wire, beginning with its length.</li>
+ * </ul>
+ * The trace ends at the end of the file or at a zero byte, whichever comes
+ * first.
+ * <p>
+ * Recording is enabled with {@link SumoTraciConnection#recordTrace(File)}.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public class TraceRecorder implements Closeable {
+
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * The first four bytes of a trace file: "TRC1".
+	 */
+	public static final int MAGIC = 0x54524331;
+
+	/**
+	 * Kind of a record that holds a message sent to SUMO.
+	 */
+	public static final byte REQUEST = 1;
+
+	/**
+	 * Kind of a record that holds a message received from SUMO.
+	 */
+	public static final byte RESPONSE = 2;
+
+	/**
+	 * Size of the regions of the file mapped at once.
+	 */
+	private static final int REGION_SIZE = 16 << 20;
+
+	private static final int RECORD_HEADER_SIZE = 1 + Long.SIZE / 8;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long startTime = System.nanoTime();
+
+	private MappedByteBuffer region;
+	private long regionStart;
+
+	/**
+	 * Creates the trace file, replacing any existing one.
+	 *
+	 * @param traceFile
+	 * @throws IOException
+	 */
+	public TraceRecorder(File traceFile) throws IOException {
+		file = new RandomAccessFile(traceFile, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		map(0, REGION_SIZE);
+		region.putInt(MAGIC);
+	}
+
+	private void map(long start, int size) throws IOException {
+		if (region != null)
+			region.force();
+		regionStart = start;
+		region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+	}
+
+	/**
+	 * Appends a message to the trace.
+	 *
+	 * @param kind
+	 *            {@link #REQUEST} or {@link #RESPONSE}
+	 * @param message
+	 *            the message, beginning with its length
+	 * @throws IOException
+	 */
+	public synchronized void record(byte kind, byte[] message) throws IOException {
+		if (region == null)
+			throw new IOException("trace recorder closed");
+
+		int needed = RECORD_HEADER_SIZE + message.length;
+		if (region.remaining() < needed)
+			map(regionStart + region.position(), Math.max(REGION_SIZE, needed));
+
+		region.put(kind);
+		region.putLong(System.nanoTime() - startTime);
+		region.put(message);
+	}
+
+	/**
+	 * Writes the pending data and trims the file to the recorded size.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (region == null)
+			return;
+
+		long size = regionStart + region.position();
+		region.force();
+		region = null;
+		try {
+			channel.truncate(size);
+		} catch (IOException e) {
+			/*
+			 * some platforms can't truncate a mapped file; the zeros left
+			 * after the last record mark the end of the trace anyway
+			 */
+			log.debug("can't trim the trace file", e);
+		}
+		file.close();
+	}
+
+	/**
+	 * @param out
+	 *            the stream to SUMO
+	 * @return a stream that writes to the given one, and records each
+	 *         message written
+	 */
+	OutputStream recordRequests(OutputStream out) {
+		final MessageAssembler assembler = new MessageAssembler();
+		return new FilterOutputStream(out) {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				assembler.write(b);
+				recordAll(REQUEST, assembler);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				assembler.write(b, off, len);
+				recordAll(REQUEST, assembler);
+			}
+		};
+	}
+
+	/**
+	 * @param in
+	 *            the stream from SUMO
+	 * @return a stream that reads from the given one, and records each
+	 *         message read
+	 */
+	InputStream recordResponses(InputStream in) {
+		final MessageAssembler assembler = new MessageAssembler();
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				int b = in.read();
+				if (b >= 0) {
+					assembler.write(b);
+					recordAll(RESPONSE, assembler);
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = in.read(b, off, len);
+				if (n > 0) {
+					assembler.write(b, off, n);
+					recordAll(RESPONSE, assembler);
+				}
+				return n;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				throw new IOException("skipping would lose recorded data");
+			}
+		};
+	}
+
+	private void recordAll(byte kind, MessageAssembler assembler) throws IOException {
+		byte[] message;
+		while ((message = assembler.next()) != null)
+			record(kind, message);
+	}
+}
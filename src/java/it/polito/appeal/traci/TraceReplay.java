@@ -0,0 +1,253 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays back a trace written by a {@link TraceRecorder}, taking the place of
+ * SUMO. A {@link SumoTraciConnection} created with
+ * {@link SumoTraciConnection#SumoTraciConnection(TraceReplay)} sends its
+ * requests here instead of to a socket, and gets the recorded responses back.
+ * <p>
+ * The replay is deterministic only as long as the client sends the same
+ * requests, in the same order, as the recorded session: each request is
+ * checked against the trace and an {@link IOException} is thrown at the first
+ * one that differs. The recorded timing is ignored, i.e. responses are
+ * returned as soon as they are asked for.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public class TraceReplay implements Closeable {
+
+	private final RandomAccessFile file;
+	private final ByteBuffer trace;
+
+	private final List<ByteBuffer> requests = new ArrayList<ByteBuffer>();
+	private final List<ByteBuffer> responses = new ArrayList<ByteBuffer>();
+
+	/**
+	 * Number of requests written by the client so far.
+	 */
+	private int requestsWritten = 0;
+
+	/**
+	 * The response being read by the client, or <code>null</code> if it must
+	 * be taken from {@link #responses}.
+	 */
+	private ByteBuffer currentResponse;
+	private int responsesRead = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * Opens a trace file.
+	 *
+	 * @param traceFile
+	 * @throws IOException
+	 *             if the file can't be read or is not a valid trace
+	 */
+	public TraceReplay(File traceFile) throws IOException {
+		file = new RandomAccessFile(traceFile, "r");
+		try {
+			long size = file.length();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("trace too large: " + size + " bytes");
+			trace = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+			index();
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	private void index() throws IOException {
+		if (trace.remaining() < 4 || trace.getInt() != TraceRecorder.MAGIC)
+			throw new IOException("not a trace file");
+
+		while (trace.hasRemaining()) {
+			int recordStart = trace.position();
+			byte kind = trace.get();
+			if (kind == 0)
+				break;
+			if (trace.remaining() < 12)
+				throw new IOException("truncated trace at offset " + recordStart);
+
+			trace.getLong(); // timestamp
+			int start = trace.position();
+			int length = trace.getInt(start);
+			if (length < 4 || start + length > trace.limit())
+				throw new IOException("truncated trace at offset " + start);
+
+			ByteBuffer message = trace.duplicate();
+			message.limit(start + length);
+			message = message.slice();
+			trace.position(start + length);
+
+			if (kind == TraceRecorder.REQUEST)
+				requests.add(message);
+			else if (kind == TraceRecorder.RESPONSE)
+				responses.add(message);
+			else
+				throw new IOException("unknown record kind " + kind + " at offset " + recordStart);
+		}
+	}
+
+	/**
+	 * @return the number of requests in the trace
+	 */
+	public int getRequestCount() {
+		return requests.size();
+	}
+
+	/**
+	 * @return the number of responses in the trace
+	 */
+	public int getResponseCount() {
+		return responses.size();
+	}
+
+	/**
+	 * @return the number of requests replayed so far
+	 */
+	public synchronized int getRequestsReplayed() {
+		return requestsWritten;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		notifyAll();
+		file.close();
+	}
+
+	private synchronized void requestWritten(byte[] message) throws IOException {
+		if (requestsWritten >= requests.size())
+			throw new IOException("request #" + requestsWritten + " is beyond the end of the trace");
+
+		ByteBuffer expected = requests.get(requestsWritten).duplicate();
+		if (!expected.equals(ByteBuffer.wrap(message)))
+			throw new IOException("request #" + requestsWritten + " differs from the trace");
+
+		requestsWritten++;
+		notifyAll();
+	}
+
+	/**
+	 * Waits until a response can be read.
+	 *
+	 * @return the response being read, or <code>null</code> at the end of the
+	 *         trace
+	 */
+	private ByteBuffer awaitResponse() throws IOException {
+		while (currentResponse == null || !currentResponse.hasRemaining()) {
+			if (responsesRead >= responses.size())
+				return null;
+			/*
+			 * SUMO sends one response per request, so don't answer before
+			 * the matching request was written
+			 */
+			while (requestsWritten <= responsesRead && !closed) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+			if (closed)
+				return null;
+			currentResponse = responses.get(responsesRead++).duplicate();
+		}
+		return currentResponse;
+	}
+
+	/**
+	 * @return the stream that receives the client's requests
+	 */
+	OutputStream getOutputStream() {
+		final MessageAssembler assembler = new MessageAssembler();
+		return new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				assembler.write(b);
+				checkAll();
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				assembler.write(b, off, len);
+				checkAll();
+			}
+
+			private void checkAll() throws IOException {
+				byte[] message;
+				while ((message = assembler.next()) != null)
+					requestWritten(message);
+			}
+		};
+	}
+
+	/**
+	 * @return the stream the client reads responses from
+	 */
+	InputStream getInputStream() {
+		return new InputStream() {
+			@Override
+			public int read() throws IOException {
+				synchronized (TraceReplay.this) {
+					ByteBuffer response = awaitResponse();
+					return response == null ? -1 : response.get() & 0xff;
+				}
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (len == 0)
+					return 0;
+				synchronized (TraceReplay.this) {
+					ByteBuffer response = awaitResponse();
+					if (response == null)
+						return -1;
+					len = Math.min(len, response.remaining());
+					response.get(b, off, len);
+					return len;
+				}
+			}
+
+			@Override
+			public int available() {
+				synchronized (TraceReplay.this) {
+					return currentResponse == null ? 0 : currentResponse.remaining();
+				}
+			}
+		};
+	}
+}
@@ -19,8 +19,12 @@
 
 package it.polito.appeal.traci;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -32,6 +36,12 @@ import java.util.Map;
  * <p>
  * If a subclass has at least one read query, it will have an own {@link Enum} 
  * (either nested or in a separate file) that lists all its read queries.
+ * <p>
+ * The values of one or more variables can be subscribed to with
+ * {@link #subscribe(Collection)}; they will be then pushed by SUMO at every
+ * simulation step, so that reading them won't need a request to SUMO.
+ * Likewise, {@link #querySubscribeContext(Repository, double, Collection)}
+ * subscribes to the objects that are around this one.
  * 
  * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
  *
@@ -40,15 +50,30 @@ import java.util.Map;
 public abstract class TraciObject<E extends Enum<E>> {
 	private final String id;
 	
-	private final EnumMap<E, ReadObjectVarQuery<?>> readQueries;
+	private final Class<E> enumClass;
+	
+	/*
+	 * both made when the first read query is added
+	 */
+	private EnumMap<E, ReadObjectVarQuery<?>> readQueries;
+	private List<ReadObjectVarQuery<?>> dynamicQueries;
+	
+	/*
+	 * set by the repository (or the connection) that made this object
+	 */
+	private SubscriptionRegistry subscriptions;
+	private CoalescedReads coalescedReads;
+	private StepClock stepClock;
 	
 	/**
 	 * Constructor for the SUMO object.
 	 * <p>
-	 * If the subclass has one or more read queries, its constructor must call
+	 * If the subclass has one or more read queries, it must call
 	 * {@link #addReadQuery(Enum, ReadObjectVarQuery)} for each query,
 	 * passing an instance of {@link ReadObjectVarQuery}. To avoid
-	 * duplicated data, that instance should be used nowhere else.
+	 * duplicated data, that instance should be used nowhere else. It may do
+	 * so in its constructor or, to save memory when most of the queries are
+	 * never used, in {@link #makeReadQuery(Enum)}.
 	 * <p>
 	 * Optionally, a subclass may have these elements:
 	 * <ul>
@@ -73,7 +98,7 @@ public abstract class TraciObject<E extends Enum<E>> {
 	 */
 	protected TraciObject(String id, Class<E> enumClass) {
 		this.id = id;
-		readQueries = new EnumMap<E, ReadObjectVarQuery<?>>(enumClass);
+		this.enumClass = enumClass;
 	}
 	
 	/**
@@ -84,7 +109,42 @@ public abstract class TraciObject<E extends Enum<E>> {
 	 * @param query the corresponding {@link ReadObjectVarQuery} instance
 	 */
 	protected void addReadQuery(E variable, ReadObjectVarQuery<?> query) {
+		if (readQueries == null)
+			readQueries = new EnumMap<E, ReadObjectVarQuery<?>>(enumClass);
 		readQueries.put(variable, query);
+		if (coalescedReads != null)
+			query.setCoalescedReads(coalescedReads);
+	}
+
+	/**
+	 * Adds a read query to the list of readable queries, telling whether its
+	 * variable may change at every simulation step. It should be called by the
+	 * subclass's constructor.
+	 * 
+	 * @param variable the enum instance of the variable
+	 * @param query the corresponding {@link ReadObjectVarQuery} instance
+	 * @param dynamic <code>true</code> if the value changes over time
+	 */
+	protected void addReadQuery(E variable, ReadObjectVarQuery<?> query, boolean dynamic) {
+		addReadQuery(variable, query);
+		if (dynamic) {
+			if (dynamicQueries == null)
+				dynamicQueries = new ArrayList<ReadObjectVarQuery<?>>();
+			dynamicQueries.add(query);
+			if (stepClock != null)
+				query.setStepClock(stepClock);
+		}
+	}
+
+	/**
+	 * Called the first time the read query of a variable is needed, if it was
+	 * not added yet. Subclasses that make their read queries lazily must
+	 * override it and call {@link #addReadQuery(Enum, ReadObjectVarQuery, boolean)}
+	 * for the given variable.
+	 * 
+	 * @param variable
+	 */
+	protected void makeReadQuery(E variable) {
 	}
 	
 	/**
@@ -99,17 +159,235 @@ public abstract class TraciObject<E extends Enum<E>> {
 	 * @return a "read variable" query for the corresponding variable.
 	 */
 	public ReadObjectVarQuery<?> getReadQuery(E variable) {
-		return readQueries.get(variable);
+		ReadObjectVarQuery<?> query = readQueries != null ? readQueries.get(variable) : null;
+		if (query == null) {
+			makeReadQuery(variable);
+			if (readQueries != null)
+				query = readQueries.get(variable);
+		}
+		return query;
 	}
 	
+	/**
+	 * Type-unsafe version of {@link #getReadQuery(Enum)}, used by
+	 * repositories that don't know the variable enum of their objects.
+	 * 
+	 * @param variable
+	 * @return the corresponding read query
+	 * @throws ClassCastException
+	 *             if the variable doesn't belong to the enum of this object
+	 */
+	ReadObjectVarQuery<?> getReadQueryUnchecked(Enum<?> variable) {
+		return getReadQuery(enumClass.cast(variable));
+	}
+
 	/**
 	 * @return a map of all the available read variables, along with their
 	 *         query object.
 	 */
 	public Map<E, ReadObjectVarQuery<?>> getAllReadQueries() {
+		for (E variable : enumClass.getEnumConstants())
+			getReadQuery(variable);
+		if (readQueries == null)
+			return Collections.emptyMap();
 		return Collections.unmodifiableMap(readQueries);
 	}
+
+	/**
+	 * @return the read query of any variable, to know the streams and the
+	 *         command of this object
+	 * @throws IllegalStateException
+	 *             if this object has no variables
+	 */
+	private ReadObjectVarQuery<?> anyReadQuery() {
+		for (E variable : enumClass.getEnumConstants()) {
+			ReadObjectVarQuery<?> query = getReadQuery(variable);
+			if (query != null)
+				return query;
+		}
+		throw new IllegalStateException("object " + id + " has no variables");
+	}
 	
+	/**
+	 * Finds the read query that reads the variable with the given TraCI ID.
+	 * 
+	 * @param varID
+	 * @return the query, or <code>null</code> if none matches
+	 */
+	ReadObjectVarQuery<?> getReadQueryByVarID(int varID) {
+		ReadObjectVarQuery<?> existing = getMadeReadQueryByVarID(varID);
+		if (existing != null)
+			return existing;
+
+		/*
+		 * not made yet: the variable enum tells which one to make, if it
+		 * knows the IDs
+		 */
+		for (E variable : enumClass.getEnumConstants()) {
+			if (variable instanceof TraciObjectVariable) {
+				if (((TraciObjectVariable) variable).id() == varID)
+					return getReadQuery(variable);
+			} else {
+				ReadObjectVarQuery<?> q = getReadQuery(variable);
+				if (q != null && q.getVarID() == varID)
+					return q;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Like {@link #getReadQueryByVarID(int)}, but doesn't make the query if
+	 * it wasn't made yet.
+	 * 
+	 * @param varID
+	 * @return the query, or <code>null</code> if none was made that matches
+	 */
+	ReadObjectVarQuery<?> getMadeReadQueryByVarID(int varID) {
+		if (readQueries != null) {
+			for (ReadObjectVarQuery<?> q : readQueries.values()) {
+				if (q.getVarID() == varID)
+					return q;
+			}
+		}
+		return null;
+	}
+
+	void setSubscriptionRegistry(SubscriptionRegistry subscriptions) {
+		this.subscriptions = subscriptions;
+	}
+
+	/**
+	 * Binds the queries of the variables that change over time to the step
+	 * count of a connection, so that their values become obsolete at every
+	 * simulation step.
+	 * 
+	 * @param clock
+	 */
+	void setStepClock(StepClock clock) {
+		stepClock = clock;
+		if (dynamicQueries != null) {
+			for (ReadObjectVarQuery<?> q : dynamicQueries)
+				q.setStepClock(clock);
+		}
+	}
+
+	void setCoalescedReads(CoalescedReads coalescedReads) {
+		this.coalescedReads = coalescedReads;
+		if (readQueries != null) {
+			for (ReadObjectVarQuery<?> q : readQueries.values())
+				q.setCoalescedReads(coalescedReads);
+		}
+	}
+
+	/**
+	 * Makes obsolete the values of the read queries made so far whose
+	 * variables change over time.
+	 */
+	void setDynamicQueriesObsolete() {
+		if (dynamicQueries != null) {
+			for (ReadObjectVarQuery<?> q : dynamicQueries)
+				q.setObsolete();
+		}
+	}
+
+	/**
+	 * Returns a query that subscribes to the given variables of this object.
+	 * Once run, the values of such variables will be updated at every
+	 * simulation step without further requests to SUMO. Any previous
+	 * subscription of this object is replaced.
+	 * 
+	 * @param variables
+	 *            the variables to subscribe to; an empty collection cancels
+	 *            the subscription
+	 * @return the subscription query
+	 * @throws IllegalArgumentException
+	 *             if one of the variables needs further parameters to be read
+	 * @throws IllegalStateException
+	 *             if this object is not bound to a connection
+	 */
+	public SubscribeVariableQuery querySubscribe(Collection<E> variables) {
+		return makeSubscribeQuery(variables);
+	}
+
+	/**
+	 * Type-unsafe version of {@link #querySubscribe(Collection)}, used by
+	 * repositories that don't know the variable enum of their objects.
+	 */
+	SubscribeVariableQuery makeSubscribeQuery(Collection<? extends Enum<?>> variables) {
+		if (subscriptions == null)
+			throw new IllegalStateException("object " + id + " is not bound to a connection");
+		ReadObjectVarQuery<?> any = anyReadQuery();
+
+		List<Integer> varIDs = new ArrayList<Integer>(variables.size());
+		for (Enum<?> variable : variables) {
+			ReadObjectVarQuery<?> q = getReadQueryUnchecked(variable);
+			if (!q.isSubscribable())
+				throw new IllegalArgumentException("can't subscribe to " + variable);
+			varIDs.add(q.getVarID());
+		}
+
+		return new SubscribeVariableQuery(any.dis, any.dos, subscriptions,
+				this, any.getCommandID(), varIDs);
+	}
+
+	/**
+	 * Returns a query that subscribes to the objects of the given repository
+	 * that are within the given range from this object. Once run, the set of
+	 * objects in range and the values of the given variables of each of them
+	 * will be updated at every simulation step without further requests to
+	 * SUMO. Any previous context subscription of this object on the same
+	 * repository is replaced.
+	 * 
+	 * @param domain
+	 *            the repository of the objects to look for, e.g.
+	 *            {@link SumoTraciConnection#getVehicleRepository()}
+	 * @param range
+	 *            the radius of the area, in meters
+	 * @param variables
+	 *            the variables to subscribe to, from the variable enum of the
+	 *            domain objects (e.g. {@link Vehicle.Variable}); an empty
+	 *            collection cancels the subscription
+	 * @return the subscription query
+	 * @throws IllegalStateException
+	 *             if this object is not bound to a connection
+	 */
+	public <V extends TraciObject<?>> SubscribeContextQuery<V> querySubscribeContext(
+			Repository<V> domain, double range,
+			Collection<? extends TraciObjectVariable> variables) {
+		if (subscriptions == null)
+			throw new IllegalStateException("object " + id + " is not bound to a connection");
+		ReadObjectVarQuery<?> any = anyReadQuery();
+
+		List<Integer> varIDs = new ArrayList<Integer>(variables.size());
+		for (TraciObjectVariable variable : variables)
+			varIDs.add(variable.id());
+
+		return new SubscribeContextQuery<V>(any.dis, any.dos, subscriptions,
+				this, any.getCommandID(), domain, range, varIDs);
+	}
+
+	/**
+	 * Subscribes to the given variables of this object, replacing any previous
+	 * subscription.
+	 * 
+	 * @param variables
+	 * @throws IOException
+	 * @see #querySubscribe(Collection)
+	 */
+	public void subscribe(Collection<E> variables) throws IOException {
+		querySubscribe(variables).run();
+	}
+
+	/**
+	 * Cancels the variable subscription of this object.
+	 * 
+	 * @throws IOException
+	 */
+	public void unsubscribe() throws IOException {
+		querySubscribe(Collections.<E>emptySet()).run();
+	}
+
 	/**
 	 * Returns the output of {@link #getID()}.
 	 * @see java.lang.Object#toString()
@@ -141,7 +419,9 @@ public abstract class TraciObject<E extends Enum<E>> {
 	 * subsequent queries to make a TraCI transaction. 
 	 */
 	public void clearCache() {
-		for (ReadObjectVarQuery<?> q : getAllReadQueries().values())
+		if (readQueries == null)
+			return;
+		for (ReadObjectVarQuery<?> q : readQueries.values())
 			q.setObsolete();
 	}
 }
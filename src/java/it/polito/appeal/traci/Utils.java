@@ -47,9 +47,8 @@ public class Utils {
 	}
 	
 	static void checkObjectID(Storage content, String objectID) throws TraCIException.UnexpectedData {
-		String s = content.readStringASCII();
-		if (!s.equals(objectID))
-			throw new TraCIException.UnexpectedData("object ID", objectID, s);
+		if (!content.matchStringASCII(objectID))
+			throw new TraCIException.UnexpectedData("object ID", objectID, content.readStringASCII());
 	}
 	
 	static void checkStatusResponse(StatusResponse statusResponse, int commandID) throws TraCIException {
@@ -19,6 +19,8 @@
 
 package it.polito.appeal.traci;
 
+import it.polito.appeal.traci.metrics.Metrics;
+import it.polito.appeal.traci.metrics.MetricsListener;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -39,6 +41,13 @@ import java.io.IOException;
  */
 public abstract class ValueReadQuery<V> extends Query {
 	private V value = null;
+	private boolean done;
+
+	/*
+	 * if set, the value is valid only during the step it was read in
+	 */
+	private StepClock clock;
+	private int stamp;
 
 	protected final DataInputStream dis;
 	protected final DataOutputStream dos;
@@ -51,13 +60,41 @@ public abstract class ValueReadQuery<V> extends Query {
 	/**
 	 * Clears the cached value. The next invocation of {@link #get()} will
 	 * make an explicit request to SUMO.
+	 * <p>
+	 * Queries of variables that change at every simulation step don't need
+	 * this call after a step: their value is made obsolete by the step itself.
 	 */
 	public void setObsolete() {
 		value = null;
+		done = false;
 	}
 
 	protected void setDone(V value) {
+		if (clock != null)
+			stamp = clock.current();
 		this.value = value;
+		done = value != null;
+	}
+
+	/**
+	 * Marks the value as read, for subclasses that keep it in a field of
+	 * their own (e.g. unboxed) instead of passing it to
+	 * {@link #setDone(Object)}.
+	 */
+	void markDone() {
+		if (clock != null)
+			stamp = clock.current();
+		done = true;
+	}
+
+	/**
+	 * Binds this query to the step count of a connection, so that the cached
+	 * value becomes obsolete at the next simulation step.
+	 * 
+	 * @param clock
+	 */
+	void setStepClock(StepClock clock) {
+		this.clock = clock;
 	}
 	
 	/**
@@ -69,22 +106,61 @@ public abstract class ValueReadQuery<V> extends Query {
 	 * @throws IOException
 	 */
 	public V get() throws IOException {
-		if (hasValue())
-			return value;
-		else {
-			MultiQuery mq = new MultiQuery(dos, dis);
-			mq.add(this);
-			mq.run();
+		prepareGet();
+		return value;
+	}
+
+	/**
+	 * Called by {@link #get()} and its unboxed variants: makes sure that the
+	 * value is cached, and reports whether it already was to the metrics
+	 * listener.
+	 * 
+	 * @throws IOException
+	 */
+	final void prepareGet() throws IOException {
+		MetricsListener metrics = Metrics.getListener();
+		if (metrics != null)
+			metrics.readQueryAccessed(hasValue());
+		ensureValue();
+	}
+
+	/**
+	 * @return the value last read, without asking SUMO for it and without
+	 *         counting the access in the metrics
+	 */
+	V cachedValue() {
+		return value;
+	}
+
+	/**
+	 * Makes sure that the value is cached, asking SUMO for it if needed.
+	 * 
+	 * @throws IOException
+	 */
+	void ensureValue() throws IOException {
+		if (!hasValue()) {
+			fetch();
 			if (!hasValue())
 				throw new IllegalStateException("incorrect state after pickResponses()");
-			return value;
 		}
 	}
+
+	/**
+	 * Sends the request of this query to SUMO and reads the response. Called
+	 * by {@link #get()} when the value isn't cached.
+	 * 
+	 * @throws IOException
+	 */
+	void fetch() throws IOException {
+		MultiQuery mq = new MultiQuery(dos, dis);
+		mq.add(this);
+		mq.run();
+	}
 	
 	/**
 	 * @return <code>true</code> if the result is cached
 	 */
 	public boolean hasValue() {
-		return value != null;
+		return done && (clock == null || stamp == clock.current());
 	}
 }
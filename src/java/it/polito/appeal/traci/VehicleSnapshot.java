@@ -0,0 +1,226 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci;
+
+import it.polito.appeal.traci.protocol.Command;
+import it.polito.appeal.traci.protocol.Constants;
+import it.polito.appeal.traci.protocol.ResponseContainer;
+import it.polito.appeal.traci.protocol.StatusResponse;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import de.uniluebeck.itm.tcpip.Storage;
+
+/**
+ * Reads the position, speed, angle and lane index of all the vehicles in the
+ * simulation with a single request message, and stores them column-wise in
+ * arrays of primitive types: the i-th element of each array refers to the
+ * vehicle whose ID is the i-th element of {@link #getIDs()}. No object is
+ * made per vehicle, and the vehicles' read queries are left untouched.
+ * <p>
+ * The arrays are reused by subsequent calls to {@link #update()} and grow
+ * when needed, so they may be longer than {@link #size()}; only the first
+ * {@link #size()} elements are meaningful. They can be wrapped, e.g. with
+ * {@link java.nio.DoubleBuffer#wrap(double[], int, int)}, without copying.
+ * <p>
+ * The vehicles read are those of the connection's vehicle repository, that
+ * {@link #update()} brings up to date first. If the snapshot is run as part of
+ * a {@link MultiQuery} instead, the repository must be brought up to date by
+ * the caller, e.g. with {@link Repository#getIDs()}.
+ * <p>
+ * Instances are obtained via
+ * {@link SumoTraciConnection#makeVehicleSnapshot()}.
+ * 
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ * 
+ */
+public class VehicleSnapshot extends Query {
+
+	/*
+	 * read for each vehicle, in this order
+	 */
+	private static final int[] VARIABLES = new int[] { Constants.VAR_POSITION,
+			Constants.VAR_SPEED, Constants.VAR_ANGLE, Constants.VAR_LANE_INDEX };
+
+	private final DataInputStream dis;
+	private final DataOutputStream dos;
+	private final Repository<Vehicle> vehicles;
+
+	private int size;
+	private String[] ids = new String[0];
+	private double[] x = new double[0];
+	private double[] y = new double[0];
+	private double[] speed = new double[0];
+	private double[] angle = new double[0];
+	private int[] laneIndex = new int[0];
+
+	VehicleSnapshot(DataInputStream dis, DataOutputStream dos,
+			Repository<Vehicle> vehicles) {
+		this.dis = dis;
+		this.dos = dos;
+		this.vehicles = vehicles;
+	}
+
+	/**
+	 * Reads the state of all the vehicles currently in the simulation.
+	 * 
+	 * @throws IOException
+	 */
+	public void update() throws IOException {
+		/*
+		 * the vehicles map isn't kept up to date at every step if nobody
+		 * tracks the vehicles
+		 */
+		if (vehicles.getIDs().isEmpty()) {
+			size = 0;
+			return;
+		}
+		MultiQuery multi = new MultiQuery(dos, dis);
+		multi.add(this);
+		multi.run();
+	}
+
+	@Override
+	List<Command> getRequests() {
+		Collection<Vehicle> current = vehicles.getKnownObjects();
+		size = current.size();
+		ensureCapacity(size);
+
+		List<Command> requests = new ArrayList<Command>(size * VARIABLES.length);
+		int i = 0;
+		for (Vehicle vehicle : current) {
+			String id = vehicle.getID();
+			ids[i++] = id;
+			for (int varID : VARIABLES) {
+				Command cmd = new Command(Constants.CMD_GET_VEHICLE_VARIABLE);
+				Storage content = cmd.content();
+				content.writeUnsignedByte(varID);
+				content.writeStringASCII(id);
+				requests.add(cmd);
+			}
+		}
+		return requests;
+	}
+
+	@Override
+	void pickResponses(Iterator<ResponseContainer> responseIterator)
+			throws TraCIException {
+		for (int i = 0; i < size; i++) {
+			Storage content = pickResponse(responseIterator, Constants.VAR_POSITION);
+			Utils.checkType(content, Constants.POSITION_2D);
+			x[i] = content.readDouble();
+			y[i] = content.readDouble();
+
+			content = pickResponse(responseIterator, Constants.VAR_SPEED);
+			Utils.checkType(content, Constants.TYPE_DOUBLE);
+			speed[i] = content.readDouble();
+
+			content = pickResponse(responseIterator, Constants.VAR_ANGLE);
+			Utils.checkType(content, Constants.TYPE_DOUBLE);
+			angle[i] = content.readDouble();
+
+			content = pickResponse(responseIterator, Constants.VAR_LANE_INDEX);
+			Utils.checkType(content, Constants.TYPE_INTEGER);
+			laneIndex[i] = content.readInt();
+		}
+	}
+
+	/**
+	 * Checks the next response and positions its content at the value type.
+	 * The object ID is skipped, rather than read into a new string.
+	 */
+	private static Storage pickResponse(Iterator<ResponseContainer> responseIterator,
+			int varID) throws TraCIException {
+		ResponseContainer respc = responseIterator.next();
+		StatusResponse statusResp = respc.getStatus();
+		Utils.checkStatusResponse(statusResp, Constants.CMD_GET_VEHICLE_VARIABLE);
+		Storage content = respc.getResponse().content();
+		Utils.checkByte(content, varID);
+		content.skipBytes(content.readInt());
+		return content;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (ids.length >= capacity)
+			return;
+		int newCapacity = Math.max(capacity, ids.length * 3 / 2);
+		ids = new String[newCapacity];
+		x = new double[newCapacity];
+		y = new double[newCapacity];
+		speed = new double[newCapacity];
+		angle = new double[newCapacity];
+		laneIndex = new int[newCapacity];
+	}
+
+	/**
+	 * @return the number of vehicles read by the last {@link #update()}
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the vehicle IDs
+	 */
+	public String[] getIDs() {
+		return ids;
+	}
+
+	/**
+	 * @return the x coordinates of the vehicles, in meters
+	 */
+	public double[] getX() {
+		return x;
+	}
+
+	/**
+	 * @return the y coordinates of the vehicles, in meters
+	 */
+	public double[] getY() {
+		return y;
+	}
+
+	/**
+	 * @return the speeds of the vehicles, in m/s
+	 */
+	public double[] getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * @return the angles of the vehicles, in degrees
+	 */
+	public double[] getAngle() {
+		return angle;
+	}
+
+	/**
+	 * @return the indices of the lanes the vehicles are on
+	 */
+	public int[] getLaneIndex() {
+		return laneIndex;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.metrics;
+
+/**
+ * Holds the {@link MetricsListener} that all the connections of this JVM
+ * report to. Metrics are disabled by default; in that case the instrumented
+ * code only pays for reading a field.
+ * <p>
+ * For example, to watch the client through JMX:
+ *
+ * <pre>
+ * MetricsRegistry registry = new MetricsRegistry();
+ * registry.registerMBean();
+ * Metrics.setListener(registry);
+ * </pre>
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public final class Metrics {
+
+	private static volatile MetricsListener listener;
+
+	private Metrics() {
+	}
+
+	/**
+	 * @return the current listener, or <code>null</code> if metrics are
+	 *         disabled
+	 */
+	public static MetricsListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Sets the listener that will receive all the measurements.
+	 *
+	 * @param listener
+	 *            the listener, or <code>null</code> to disable metrics
+	 */
+	public static void setListener(MetricsListener listener) {
+		Metrics.listener = listener;
+	}
+}
@@ -0,0 +1,110 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.metrics;
+
+/**
+ * Receives measurements from the hot paths of the client. An implementation
+ * is installed with {@link Metrics#setListener(MetricsListener)}.
+ * <p>
+ * The methods are called by any thread that talks to SUMO, often within
+ * tight loops; therefore they should be thread-safe and return quickly.
+ * {@link MetricsRegistry} is a ready-made implementation.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public interface MetricsListener {
+
+	/**
+	 * Called when a request message is sent.
+	 *
+	 * @param bytes
+	 *            the message size, including the length header
+	 */
+	void messageSent(int bytes);
+
+	/**
+	 * Called when a response message is received and parsed.
+	 *
+	 * @param bytes
+	 *            the message size, including the length header
+	 * @param parseNanos
+	 *            the time spent splitting the message into responses, not
+	 *            including the time spent waiting for it
+	 */
+	void messageReceived(int bytes, long parseNanos);
+
+	/**
+	 * Called when a batch of queries has been run.
+	 *
+	 * @param queries
+	 *            the number of queries in the batch
+	 */
+	void queriesRun(int queries);
+
+	/**
+	 * Called when the response to a request message is received.
+	 *
+	 * @param nanos
+	 *            the time between sending the request and parsing the
+	 *            response
+	 */
+	void roundTripCompleted(long nanos);
+
+	/**
+	 * Called when the response to a request message is received, if all the
+	 * commands in the request had the same ID. Messages that mix commands
+	 * are only reported to {@link #roundTripCompleted(long)}, since the time
+	 * taken by each command can't be told apart.
+	 *
+	 * @param commandID
+	 * @param nanos
+	 *            the time between sending the request and parsing the
+	 *            response
+	 */
+	void commandCompleted(int commandID, long nanos);
+
+	/**
+	 * Called whenever the value of a read query is requested.
+	 *
+	 * @param hit
+	 *            <code>true</code> if the value was cached,
+	 *            <code>false</code> if it had to be asked to SUMO
+	 */
+	void readQueryAccessed(boolean hit);
+
+	/**
+	 * Called after the step listeners have been notified.
+	 *
+	 * @param nanos
+	 *            the time spent notifying them, or handing them to their
+	 *            executor
+	 */
+	void listenersNotified(long nanos);
+
+	/**
+	 * Called when a simulation step, or a multiple step, has been completed.
+	 *
+	 * @param nanos
+	 *            the time spent in the step, from the request to the
+	 *            notification of all the listeners
+	 */
+	void stepCompleted(long nanos);
+}
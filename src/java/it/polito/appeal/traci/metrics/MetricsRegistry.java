@@ -0,0 +1,295 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A {@link MetricsListener} that aggregates the measurements in counters and
+ * {@link Histogram}s. They can be read programmatically or, once
+ * {@link #registerMBean() registered}, through JMX.
+ * <p>
+ * A slow simulation step can be broken down by comparing the latency of
+ * {@link it.polito.appeal.traci.protocol.Constants#CMD_SIMSTEP2} (SUMO
+ * computation plus network), the parse time, the listener time and the
+ * number of queries per step. The latency of a command is only measured by
+ * the request messages made of that command alone: when the vehicles are
+ * tracked, for instance, the step message also reads the vehicle list, and
+ * is only counted among the {@link #getRoundTripTime() round trips}.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public class MetricsRegistry implements MetricsListener, MetricsRegistryMBean {
+
+	/**
+	 * The name used by {@link #registerMBean()}.
+	 */
+	public static final String DEFAULT_OBJECT_NAME = "it.polito.appeal.traci:type=Metrics";
+
+	private final AtomicLong messagesSent = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong messagesReceived = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong readHits = new AtomicLong();
+	private final AtomicLong readMisses = new AtomicLong();
+
+	/**
+	 * Queries run since the end of the last step.
+	 */
+	private final AtomicLong stepQueries = new AtomicLong();
+
+	private final Histogram parseTime = new Histogram();
+	private final Histogram listenerTime = new Histogram();
+	private final Histogram stepTime = new Histogram();
+	private final Histogram queriesPerStep = new Histogram();
+	private final Histogram roundTripTime = new Histogram();
+
+	/**
+	 * Latency histograms, by command ID; created on first use.
+	 */
+	private final AtomicReferenceArray<Histogram> commandLatencies = new AtomicReferenceArray<Histogram>(256);
+
+	@Override
+	public void messageSent(int bytes) {
+		messagesSent.incrementAndGet();
+		bytesSent.addAndGet(bytes);
+	}
+
+	@Override
+	public void messageReceived(int bytes, long parseNanos) {
+		messagesReceived.incrementAndGet();
+		bytesReceived.addAndGet(bytes);
+		parseTime.record(parseNanos);
+	}
+
+	@Override
+	public void queriesRun(int queries) {
+		stepQueries.addAndGet(queries);
+	}
+
+	@Override
+	public void roundTripCompleted(long nanos) {
+		roundTripTime.record(nanos);
+	}
+
+	@Override
+	public void commandCompleted(int commandID, long nanos) {
+		Histogram latency = commandLatencies.get(commandID);
+		if (latency == null) {
+			commandLatencies.compareAndSet(commandID, null, new Histogram());
+			latency = commandLatencies.get(commandID);
+		}
+		latency.record(nanos);
+	}
+
+	@Override
+	public void readQueryAccessed(boolean hit) {
+		if (hit)
+			readHits.incrementAndGet();
+		else
+			readMisses.incrementAndGet();
+	}
+
+	@Override
+	public void listenersNotified(long nanos) {
+		listenerTime.record(nanos);
+	}
+
+	@Override
+	public void stepCompleted(long nanos) {
+		stepTime.record(nanos);
+		queriesPerStep.record(stepQueries.getAndSet(0));
+	}
+
+	/**
+	 * @param commandID
+	 * @return the latencies of the request messages made only of the given
+	 *         command, in ns, or <code>null</code> if there was none
+	 */
+	public Histogram getCommandLatency(int commandID) {
+		return commandLatencies.get(commandID);
+	}
+
+	/**
+	 * @return the latencies of all the request messages, in ns
+	 */
+	public Histogram getRoundTripTime() {
+		return roundTripTime;
+	}
+
+	/**
+	 * @return the times spent parsing response messages, in ns
+	 */
+	public Histogram getParseTime() {
+		return parseTime;
+	}
+
+	/**
+	 * @return the times spent notifying the step listeners, in ns
+	 */
+	public Histogram getListenerTime() {
+		return listenerTime;
+	}
+
+	/**
+	 * @return the durations of the simulation steps, in ns
+	 */
+	public Histogram getStepTime() {
+		return stepTime;
+	}
+
+	/**
+	 * @return the numbers of queries run in each simulation step, including
+	 *         the ones of the step itself
+	 */
+	public Histogram getQueriesPerStep() {
+		return queriesPerStep;
+	}
+
+	@Override
+	public long getMessagesSent() {
+		return messagesSent.get();
+	}
+
+	@Override
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	@Override
+	public long getMessagesReceived() {
+		return messagesReceived.get();
+	}
+
+	@Override
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	@Override
+	public double getMeanParseMicros() {
+		return parseTime.getMean() / 1e3;
+	}
+
+	@Override
+	public long getReadCacheHits() {
+		return readHits.get();
+	}
+
+	@Override
+	public long getReadCacheMisses() {
+		return readMisses.get();
+	}
+
+	@Override
+	public double getReadCacheHitRatio() {
+		long hits = readHits.get();
+		long total = hits + readMisses.get();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public long getSteps() {
+		return stepTime.getCount();
+	}
+
+	@Override
+	public double getMeanStepMillis() {
+		return stepTime.getMean() / 1e6;
+	}
+
+	@Override
+	public double getMeanQueriesPerStep() {
+		return queriesPerStep.getMean();
+	}
+
+	@Override
+	public double getMeanListenerMicros() {
+		return listenerTime.getMean() / 1e3;
+	}
+
+	@Override
+	public double getMeanRoundTripMicros() {
+		return roundTripTime.getMean() / 1e3;
+	}
+
+	@Override
+	public String[] getCommandLatencies() {
+		List<String> out = new ArrayList<String>();
+		for (int id = 0; id < commandLatencies.length(); id++) {
+			Histogram latency = commandLatencies.get(id);
+			if (latency == null)
+				continue;
+			out.add(String.format(Locale.ENGLISH,
+					"0x%02x: count=%d mean=%.1f p50=%.1f p99=%.1f max=%.1f", id,
+					latency.getCount(), latency.getMean() / 1e3,
+					latency.getPercentile(50) / 1e3, latency.getPercentile(99) / 1e3,
+					latency.getMax() / 1e3));
+		}
+		return out.toArray(new String[out.size()]);
+	}
+
+	@Override
+	public void reset() {
+		for (AtomicLong counter : new AtomicLong[] { messagesSent, bytesSent,
+				messagesReceived, bytesReceived, readHits, readMisses, stepQueries })
+			counter.set(0);
+		for (Histogram h : new Histogram[] { parseTime, listenerTime, stepTime, queriesPerStep, roundTripTime })
+			h.reset();
+		for (int id = 0; id < commandLatencies.length(); id++)
+			commandLatencies.set(id, null);
+	}
+
+	/**
+	 * Registers this object in the platform MBean server, with the name
+	 * {@value #DEFAULT_OBJECT_NAME}.
+	 *
+	 * @return the name
+	 * @throws JMException
+	 *             if the name is already taken
+	 */
+	public ObjectName registerMBean() throws JMException {
+		ObjectName name = new ObjectName(DEFAULT_OBJECT_NAME);
+		registerMBean(name);
+		return name;
+	}
+
+	/**
+	 * Registers this object in the platform MBean server.
+	 *
+	 * @param name
+	 * @throws JMException
+	 *             if the name is already taken
+	 */
+	public void registerMBean(ObjectName name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(this, name);
+	}
+}
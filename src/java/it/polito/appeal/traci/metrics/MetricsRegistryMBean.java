@@ -0,0 +1,107 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.metrics;
+
+/**
+ * The JMX view of a {@link MetricsRegistry}.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public interface MetricsRegistryMBean {
+
+	/**
+	 * @return the number of request messages sent
+	 */
+	long getMessagesSent();
+
+	/**
+	 * @return the total size of the request messages, in bytes
+	 */
+	long getBytesSent();
+
+	/**
+	 * @return the number of response messages received
+	 */
+	long getMessagesReceived();
+
+	/**
+	 * @return the total size of the response messages, in bytes
+	 */
+	long getBytesReceived();
+
+	/**
+	 * @return the mean time spent parsing a response message, in &micro;s
+	 */
+	double getMeanParseMicros();
+
+	/**
+	 * @return the number of read query values found in cache
+	 */
+	long getReadCacheHits();
+
+	/**
+	 * @return the number of read query values that had to be asked to SUMO
+	 */
+	long getReadCacheMisses();
+
+	/**
+	 * @return the ratio of read query values found in cache, or 0 if no
+	 *         value was read
+	 */
+	double getReadCacheHitRatio();
+
+	/**
+	 * @return the number of simulation steps completed
+	 */
+	long getSteps();
+
+	/**
+	 * @return the mean duration of a simulation step, in ms
+	 */
+	double getMeanStepMillis();
+
+	/**
+	 * @return the mean number of queries run per simulation step
+	 */
+	double getMeanQueriesPerStep();
+
+	/**
+	 * @return the mean time spent notifying the step listeners, in &micro;s
+	 */
+	double getMeanListenerMicros();
+
+	/**
+	 * @return the mean latency of a request message, in &micro;s
+	 */
+	double getMeanRoundTripMicros();
+
+	/**
+	 * @return a summary of the latency of each command ID, in &micro;s. It
+	 *         is measured only by the request messages made of that command
+	 *         alone, not by those that mix different commands.
+	 */
+	String[] getCommandLatencies();
+
+	/**
+	 * Forgets all the measurements.
+	 */
+	void reset();
+}
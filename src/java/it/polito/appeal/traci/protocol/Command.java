@@ -48,7 +48,8 @@ public class Command {
 	 * Builds a command from a {@link Storage} received from the other endpoint.
 	 * <p>
 	 * Note that this will advance the storage's internal pointer to the next
-	 * data.
+	 * data. The content is not copied: it is a slice of the given storage
+	 * (see {@link Storage#slice(int)}).
 	 * @param rawStorage
 	 */
 	public Command(Storage rawStorage) {
@@ -60,12 +61,7 @@ public class Command {
 
 		id = rawStorage.readUnsignedByte();
 		
-		short[] buf = new short[contentLen];
-		for (int i=0; i<contentLen; i++) {
-			buf[i] = (byte)rawStorage.readUnsignedByte();
-		}
-		
-		content = new Storage(buf);
+		content = rawStorage.slice(contentLen);
 	}
 	
 	/**
@@ -111,9 +107,7 @@ public class Command {
 		
 		out.writeUnsignedByte(id);
 		
-		for (Byte b : content.getStorageList()) {
-			out.writeByte(b);
-		}
+		out.writeBytes(content);
 	}
 
 	/**
@@ -19,14 +19,16 @@
 
 package it.polito.appeal.traci.protocol;
 
+import it.polito.appeal.traci.metrics.Metrics;
+import it.polito.appeal.traci.metrics.MetricsListener;
+
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-//import java.util.zip.CRC32;
 import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import java.util.zip.Checksum;
 
 import org.apache.logging.log4j.LogManager;
@@ -49,6 +51,18 @@ public class RequestMessage {
 
 	private static final Logger log = LogManager.getLogger();
 
+	/**
+	 * Above this size (in bytes), the output buffer is released after use.
+	 */
+	private static final int MAX_POOLED_BUFFER_SIZE = 1 << 20;
+
+	private static final ThreadLocal<Storage> OUTPUT_BUFFER = new ThreadLocal<Storage>() {
+		@Override
+		protected Storage initialValue() {
+			return new Storage(4096);
+		}
+	};
+
 	private final List<Command> commands = new ArrayList<Command>();
 
 	/**
@@ -67,6 +81,9 @@ public class RequestMessage {
 	/**
 	 * Writes the commands to the specified {@link DataOutputStream} object, in
 	 * the same order as the calls of {@link #append(Command)}.
+	 * <p>
+	 * All the commands are serialized into a per-thread buffer, that is reused
+	 * by subsequent messages, and then written to the stream at once.
 	 * 
 	 * @param dos
 	 * @throws IOException
@@ -78,38 +95,33 @@ public class RequestMessage {
 			totalLen += cmd.rawSize();
 		}
 
-		Checksum checksum = null;
-		if (log.isDebugEnabled()) {
-			checksum = new CRC32();
-			log.debug("sending a message " + totalLen + " bytes long");
-
+		Storage body = OUTPUT_BUFFER.get();
+		body.reset();
+		for (Command cmd : commands) {
+			cmd.writeRawTo(body);
 		}
 
 		dos.writeInt(totalLen);
 
-		for (Command cmd : commands) {
-			Storage s = new Storage();
-			cmd.writeRawTo(s);
-			writeStorage(s, dos, checksum);
-		}
+		if (log.isDebugEnabled()) {
+			log.debug("sending a message " + totalLen + " bytes long");
 
-		if (log.isDebugEnabled())
+			Checksum checksum = new CRC32();
+			body.writeTo(new CheckedOutputStream(dos, checksum));
 			log.debug("message checksum (without len) = " + checksum.getValue());
-	}
-
-	private void writeStorage(Storage storage, OutputStream os,
-			Checksum checksum) throws IOException {
-
-		byte[] buf = new byte[storage.getStorageList().size()];
-		int n = 0;
-		for (Byte b : storage.getStorageList()) {
-			if (checksum != null)
-				checksum.update(b);
-
-			buf[n] = b;
-			n++;
 		}
-		os.write(buf);
+		else
+			body.writeTo(dos);
+
+		MetricsListener metrics = Metrics.getListener();
+		if (metrics != null)
+			metrics.messageSent(totalLen);
+
+		/*
+		 * don't keep exceptionally large buffers around
+		 */
+		if (body.size() > MAX_POOLED_BUFFER_SIZE)
+			OUTPUT_BUFFER.remove();
 	}
 
 	/**
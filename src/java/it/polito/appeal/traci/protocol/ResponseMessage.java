@@ -19,6 +19,9 @@
 
 package it.polito.appeal.traci.protocol;
 
+import it.polito.appeal.traci.metrics.Metrics;
+import it.polito.appeal.traci.metrics.MetricsListener;
+
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -71,6 +74,9 @@ public class ResponseMessage {
 	 * </ul>
 	 * A new {@link ResponseMessage}, collecting all the data that belong to the
 	 * same request, is built and appended to an internal list.
+	 * <p>
+	 * The message is read from the stream into a single buffer, that is never
+	 * copied again: the content of each {@link Command} is a view over it.
 	 * 
 	 * @param dis
 	 * @throws IOException
@@ -81,7 +87,10 @@ public class ResponseMessage {
 		byte[] buffer = new byte[totalLen];
 		dis.readFully(buffer);
 		
-		Storage s = new Storage(buffer);
+		Storage s = Storage.wrap(buffer, 0, totalLen);
+
+		MetricsListener metrics = Metrics.getListener();
+		long parseStart = (metrics != null) ? System.nanoTime() : 0;
 		
 		while (s.validPos()) {
 			StatusResponse sr = new StatusResponse(s);
@@ -101,7 +110,8 @@ public class ResponseMessage {
 				responseContainer = new ResponseContainer(sr, null, subResponses);
 				
 			}
-			else if (isStatusOnlyResponse(sr.id())) {
+			else if (isStatusOnlyResponse(sr.id())
+					|| (isSubscription(sr.id()) && !nextResponseMatches(s, sr.id()))) {
 				responseContainer = new ResponseContainer(sr, null);
 			}
 			else
@@ -109,8 +119,38 @@ public class ResponseMessage {
 			
 			pairs.add(responseContainer);
 		}
+
+		if (metrics != null)
+			metrics.messageReceived(totalLen + Integer.SIZE/8, System.nanoTime() - parseStart);
 	}
 	
+	/**
+	 * A subscription command may be answered with a response command (if it
+	 * subscribed to something) or with the sole status (if it cancelled a
+	 * subscription).
+	 */
+	private static boolean isSubscription(int statusResponseID) {
+		return (statusResponseID >= Constants.CMD_SUBSCRIBE_INDUCTIONLOOP_CONTEXT
+					&& statusResponseID <= Constants.CMD_SUBSCRIBE_LANE_AREA_DETECTOR_CONTEXT)
+				|| (statusResponseID >= Constants.CMD_SUBSCRIBE_INDUCTIONLOOP_VARIABLE
+					&& statusResponseID <= Constants.CMD_SUBSCRIBE_LANE_AREA_DETECTOR_VARIABLE);
+	}
+
+	/**
+	 * Checks, without consuming any data, if the next packet is the response
+	 * command to the given command. The response ID of a subscription is
+	 * always the command ID plus 0x10.
+	 */
+	private static boolean nextResponseMatches(Storage s, int commandID) {
+		if (!s.validPos())
+			return false;
+		int len = s.peekUnsignedByte(0);
+		int idDistance = (len == 0) ? 1 + Integer.SIZE/8 : 1;
+		if (s.remaining() <= idDistance)
+			return false;
+		return s.peekUnsignedByte(idDistance) == commandID + 0x10;
+	}
+
 	private boolean isStatusOnlyResponse(int statusResponseID) {
 		for (int id : STATUS_ONLY_RESPONSES)
 			if (id == statusResponseID)
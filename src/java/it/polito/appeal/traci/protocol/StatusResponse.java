@@ -101,8 +101,8 @@ public class StatusResponse {
 	public void writeTo(Storage out) {
 		out.writeByte(0);
 		out.writeInt(5+1+1+4+description.length());
-		out.writeByte(id);
-		out.writeByte(result);
+		out.writeUnsignedByte(id);
+		out.writeUnsignedByte(result);
 		out.writeStringASCII(description);
 	}
 }
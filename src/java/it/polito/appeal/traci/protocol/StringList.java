@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.ListIterator;
 
 import de.uniluebeck.itm.tcpip.Storage;
+import de.uniluebeck.itm.tcpip.StringPool;
 
 /**
  * Representation of a list of {@link String} can be serialized and
@@ -64,6 +65,21 @@ public class StringList implements List<String>, WriteableToStorage {
 	 */
 	public StringList(Storage storage, boolean verifyType)
 			throws TraCIException {
+		this(storage, verifyType, null);
+	}
+
+	/**
+	 * Constructor that de-serializes contents from a {@link Storage},
+	 * resolving the strings to the instances of a pool.
+	 * 
+	 * @param storage
+	 * @param verifyType
+	 * @param pool
+	 *            the pool of strings; may be <code>null</code>
+	 * @throws TraCIException
+	 */
+	public StringList(Storage storage, boolean verifyType, StringPool pool)
+			throws TraCIException {
 		if (verifyType) {
 			if (storage.readByte() != Constants.TYPE_STRINGLIST)
 				throw new TraCIException("string list expected");
@@ -72,7 +88,7 @@ public class StringList implements List<String>, WriteableToStorage {
 		int len = storage.readInt();
 		list = new ArrayList<String>(len);
 		for (int i = 0; i < len; i++) {
-			list.add(storage.readStringASCII());
+			list.add(pool != null ? storage.readStringASCII(pool) : storage.readStringASCII());
 		}
 	}
 
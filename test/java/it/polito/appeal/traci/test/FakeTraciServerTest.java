@@ -0,0 +1,451 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test;
+
+import static org.junit.Assert.*;
+import it.polito.appeal.traci.Edge;
+import it.polito.appeal.traci.Lane;
+import it.polito.appeal.traci.LockStepDriver;
+import it.polito.appeal.traci.QueryPipeline;
+import it.polito.appeal.traci.Repository;
+import it.polito.appeal.traci.SumoTraciConnection;
+import it.polito.appeal.traci.TLState;
+import it.polito.appeal.traci.TraCIException;
+import it.polito.appeal.traci.TrafficLight;
+import it.polito.appeal.traci.Vehicle;
+import it.polito.appeal.traci.VehicleLifecycleObserver;
+import it.polito.appeal.traci.VehicleSnapshot;
+import it.polito.appeal.traci.metrics.Metrics;
+import it.polito.appeal.traci.metrics.MetricsRegistry;
+import it.polito.appeal.traci.test.fake.FakeScenario;
+import it.polito.appeal.traci.test.fake.FakeSimulation;
+import it.polito.appeal.traci.test.fake.FakeTraciServer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the client against a {@link FakeTraciServer}, so it doesn't need SUMO.
+ */
+@SuppressWarnings("javadoc")
+public class FakeTraciServerTest {
+
+	private FakeScenario scenario;
+
+	private FakeTraciServer server;
+
+	private SumoTraciConnection conn;
+
+	@Before
+	public void setUp() {
+		scenario = new FakeScenario();
+		scenario.setLaneCount(4);
+		scenario.setTrafficLightCount(2);
+		scenario.setInitialVehicles(10);
+		scenario.setDeparturesPerStep(2);
+		scenario.setTripSteps(5);
+	}
+
+	@After
+	public void tearDown() throws IOException, InterruptedException {
+		if (conn != null)
+			conn.close();
+		if (server != null)
+			server.close();
+	}
+
+	private SumoTraciConnection connect() throws IOException, InterruptedException {
+		if (server == null) {
+			server = new FakeTraciServer(scenario);
+			server.start();
+		}
+		return new SumoTraciConnection(server.getAddress(), server.getPort());
+	}
+
+	@Test
+	public void testInitialPopulation() throws IOException, InterruptedException {
+		conn = connect();
+		assertEquals(0, conn.getCurrentSimTime());
+		assertEquals(10, conn.getVehicleRepository().getIDs().size());
+		assertEquals(4, conn.getLaneRepository().getIDs().size());
+		assertEquals(4, conn.getEdgeRepository().getIDs().size());
+		assertEquals(2, conn.getTrafficLightRepository().getIDs().size());
+		assertTrue(conn.getPOIRepository().getIDs().isEmpty());
+	}
+
+	@Test
+	public void testDeparturesAndArrivals() throws IOException, InterruptedException {
+		conn = connect();
+		final int[] counts = new int[2];
+		conn.addVehicleLifecycleObserver(new VehicleLifecycleObserver() {
+			public void vehicleDeparted(Vehicle vehicle) {
+				counts[0]++;
+			}
+			public void vehicleArrived(Vehicle vehicle) {
+				counts[1]++;
+			}
+			public void vehicleTeleportStarting(Vehicle vehicle) {
+			}
+			public void vehicleTeleportEnding(Vehicle vehicle) {
+			}
+		});
+
+		for (int i = 0; i < 10; i++)
+			conn.nextSimStep();
+
+		assertEquals(10000, conn.getCurrentSimTime());
+		assertEquals(20, counts[0]);
+		assertEquals(20, counts[1]);
+		assertEquals(10, conn.getVehicleRepository().getAll().size());
+		assertNotNull(conn.getVehicleRepository().getByID("veh29"));
+		assertNull(conn.getVehicleRepository().getByID("veh19"));
+	}
+
+	@Test
+	public void testRunUntil() throws IOException, InterruptedException {
+		conn = connect();
+		conn.runUntil(50000);
+		assertEquals(50000, conn.getCurrentSimTime());
+		assertEquals(10, conn.getVehicleRepository().getIDs().size());
+		assertNotNull(conn.getVehicleRepository().getByID("veh109"));
+	}
+
+	@Test
+	public void testVehicleSetsAreSnapshots() throws IOException, InterruptedException {
+		conn = connect();
+		Set<String> ids = conn.getVehicleRepository().getIDs();
+		Map<String, Vehicle> all = conn.getVehicleRepository().getAll();
+		conn.nextSimStep();
+		conn.nextSimStep();
+		assertEquals(10, ids.size());
+		assertEquals(ids, all.keySet());
+		assertFalse(ids.contains("veh10"));
+		assertTrue(conn.getVehicleRepository().getIDs().contains("veh10"));
+	}
+
+	/**
+	 * Without lifecycle observers, the vehicles map isn't updated at every
+	 * step; the snapshot must bring it up to date itself.
+	 */
+	@Test
+	public void testVehicleSnapshotWithoutObservers() throws IOException, InterruptedException {
+		conn = connect();
+		VehicleSnapshot snapshot = conn.makeVehicleSnapshot();
+		for (int i = 0; i < 10; i++) {
+			conn.nextSimStep();
+			snapshot.update();
+			Set<String> ids = conn.getVehicleRepository().getIDs();
+			assertEquals(ids.size(), snapshot.size());
+			assertEquals(ids, new HashSet<String>(Arrays.asList(snapshot.getIDs()).subList(0, snapshot.size())));
+		}
+
+		Vehicle v = conn.getVehicleRepository().getByID(snapshot.getIDs()[0]);
+		assertEquals(v.getSpeed(), snapshot.getSpeed()[0], 1e-9);
+		assertEquals(v.getLaneIndex(), snapshot.getLaneIndex()[0]);
+	}
+
+	@Test
+	public void testReadVariables() throws IOException, InterruptedException {
+		conn = connect();
+		Vehicle v = conn.getVehicleRepository().getByID("veh1");
+		Lane lane = v.queryReadCurrentLane().get();
+		assertEquals("e1_0", lane.getID());
+		assertEquals(scenario.getLaneLength(), lane.queryReadLength().get(), 0);
+		assertEquals("e1", lane.queryReadParentEdge().get().getID());
+		assertEquals(scenario.getLaneMaxSpeed() * 0.6, v.queryReadSpeed().get(), 1e-9);
+
+		double pos = v.queryReadLanePosition().get();
+		conn.nextSimStep();
+		assertEquals(pos + scenario.getLaneMaxSpeed() * 0.6, v.queryReadLanePosition().get(), 1e-9);
+
+		TrafficLight tl = conn.getTrafficLightRepository().getByID("tl0");
+		TLState state = tl.queryReadState().get();
+		assertEquals(6, state.lightStates.length);
+		assertEquals(0, (int) tl.queryReadCurrentPhase().get());
+	}
+
+	@Test(expected = TraCIException.class)
+	public void testUnsupportedVariable() throws IOException, InterruptedException {
+		conn = connect();
+		conn.getVehicleRepository().getByID("veh0").queryReadCO2Emission().get();
+	}
+
+	@Test
+	public void testPrefetchSplitsLargeBatches() throws IOException, InterruptedException {
+		scenario.setInitialVehicles(2000);
+		conn = connect();
+		Repository<Vehicle> repo = conn.getVehicleRepository();
+		repo.getIDs();
+		MetricsRegistry metrics = new MetricsRegistry();
+		Metrics.setListener(metrics);
+		try {
+			repo.prefetch(EnumSet.of(Vehicle.Variable.SPEED, Vehicle.Variable.LANE_POSITION));
+			// 4000 reads of about 15 bytes each don't fit in a single message
+			assertTrue(metrics.getRoundTripTime().getCount() > 1);
+			for (Vehicle v : repo.getAll().values()) {
+				assertTrue(v.queryReadSpeed().hasValue());
+				assertTrue(v.queryReadLanePosition().hasValue());
+			}
+		} finally {
+			Metrics.setListener(null);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPrefetchRejectsParameterizedVariable() throws IOException, InterruptedException {
+		conn = connect();
+		conn.getEdgeRepository().prefetch(EnumSet.of(Edge.Variable.TRAVEL_TIME));
+	}
+
+	@Test
+	public void testSubscription() throws IOException, InterruptedException {
+		conn = connect();
+		Vehicle v = conn.getVehicleRepository().getByID("veh9");
+		v.subscribe(EnumSet.of(Vehicle.Variable.SPEED, Vehicle.Variable.LANE_POSITION));
+		assertTrue(v.queryReadLanePosition().hasValue());
+		double pos = v.queryReadLanePosition().get();
+
+		conn.nextSimStep();
+		assertTrue(v.queryReadLanePosition().hasValue());
+		assertTrue(v.queryReadLanePosition().get() > pos);
+	}
+
+	@Test
+	public void testScript() throws IOException, InterruptedException {
+		scenario.setDeparturesPerStep(0);
+		scenario.setTripSteps(0);
+		scenario.addScript(new FakeScenario.Script() {
+			public void step(FakeSimulation sim) {
+				if (sim.getStep() == 1)
+					sim.arrive("veh0");
+				else if (sim.getStep() == 2)
+					sim.depart(3);
+			}
+		});
+		conn = connect();
+		conn.nextSimStep();
+		assertNull(conn.getVehicleRepository().getByID("veh0"));
+		conn.nextSimStep();
+		Vehicle v = conn.getVehicleRepository().getByID("veh10");
+		assertNotNull(v);
+		assertEquals("e3_0", v.queryReadCurrentLane().get().getID());
+	}
+
+	@Test
+	public void testSynchronousReadDrainsPipeline() throws Exception {
+		conn = connect();
+		QueryPipeline pipeline = conn.getQueryPipeline();
+		List<Future<Double>> speeds = new ArrayList<Future<Double>>();
+		for (int i = 0; i < 10; i++) {
+			Vehicle v = conn.getVehicleRepository().getByID("veh" + i);
+			speeds.add(pipeline.submit(v.queryReadSpeed()));
+		}
+
+		// sent while the pipelined responses may still be unread
+		Lane lane = conn.getLaneRepository().getByID("e2_0");
+		assertEquals(scenario.getLaneLength(), lane.queryReadLength().get(), 0);
+		assertTrue(pipeline.isIdle());
+
+		for (int i = 0; i < 10; i++)
+			assertEquals(scenario.getLaneMaxSpeed() * (0.5 + (i % 6) / 10.0), speeds.get(i).get(), 1e-9);
+	}
+
+	/**
+	 * The lane read for each vehicle is looked up in the lane repository,
+	 * whose ID list isn't read yet: that takes a synchronous query while
+	 * other responses are in flight.
+	 */
+	@Test
+	public void testPipelinedObjectRead() throws Exception {
+		conn = connect();
+		QueryPipeline pipeline = conn.getQueryPipeline();
+		List<Future<Lane>> lanes = new ArrayList<Future<Lane>>();
+		for (int i = 0; i < 10; i++) {
+			Vehicle v = conn.getVehicleRepository().getByID("veh" + i);
+			lanes.add(pipeline.submit(v.queryReadCurrentLane()));
+		}
+
+		for (int i = 0; i < 10; i++) {
+			Lane lane = lanes.get(i).get();
+			assertEquals("e" + (i % 4) + "_0", lane.getID());
+			assertSame(conn.getLaneRepository().getByID(lane.getID()), lane);
+		}
+		assertTrue(pipeline.isIdle());
+	}
+
+	@Test
+	public void testPipelinedReadIsNotACacheAccess() throws Exception {
+		conn = connect();
+		Vehicle v = conn.getVehicleRepository().getByID("veh0");
+		MetricsRegistry metrics = new MetricsRegistry();
+		Metrics.setListener(metrics);
+		try {
+			conn.getQueryPipeline().submit(v.queryReadSpeed()).get();
+			assertEquals(0, metrics.getReadCacheHits());
+			assertEquals(0, metrics.getReadCacheMisses());
+		} finally {
+			Metrics.setListener(null);
+		}
+	}
+
+	/**
+	 * Records the vehicle lifecycle events as strings like "arrived veh3".
+	 */
+	private static class LifecycleLog implements VehicleLifecycleObserver {
+		final List<String> events = new ArrayList<String>();
+		public void vehicleDeparted(Vehicle vehicle) {
+			events.add("departed " + vehicle.getID());
+		}
+		public void vehicleArrived(Vehicle vehicle) {
+			events.add("arrived " + vehicle.getID());
+		}
+		public void vehicleTeleportStarting(Vehicle vehicle) {
+			events.add("teleport starting " + vehicle.getID());
+		}
+		public void vehicleTeleportEnding(Vehicle vehicle) {
+			events.add("teleport ending " + vehicle.getID());
+		}
+	}
+
+	private void teleportDuringSteps(final int startStep, final int endStep) {
+		scenario.setDeparturesPerStep(0);
+		scenario.setTripSteps(0);
+		scenario.addScript(new FakeScenario.Script() {
+			public void step(FakeSimulation sim) {
+				if (sim.getStep() == startStep)
+					sim.startTeleport("veh3");
+				else if (sim.getStep() == endStep)
+					sim.endTeleport("veh3", 2);
+			}
+		});
+	}
+
+	@Test
+	public void testLongTeleport() throws IOException, InterruptedException {
+		teleportDuringSteps(1, 5);
+		conn = connect();
+		Vehicle v = conn.getVehicleRepository().getByID("veh3");
+		LifecycleLog log = new LifecycleLog();
+		conn.addVehicleLifecycleObserver(log);
+
+		conn.nextSimStep();
+		// the vehicle list is read while veh3 is teleporting
+		conn.runUntil(3000);
+		assertNotNull(conn.getVehicleRepository().getByID("veh3"));
+		conn.nextSimStep();
+		conn.nextSimStep();
+
+		assertEquals(5000, conn.getCurrentSimTime());
+		assertEquals(Arrays.asList("teleport starting veh3", "teleport ending veh3"), log.events);
+		assertSame(v, conn.getVehicleRepository().getByID("veh3"));
+		assertEquals("e2_0", v.queryReadCurrentLane().get().getID());
+	}
+
+	@Test
+	public void testTeleportStartedWhileUntracked() throws IOException, InterruptedException {
+		teleportDuringSteps(2, 4);
+		conn = connect();
+		conn.runUntil(3000);
+		assertNull(conn.getVehicleRepository().getByID("veh3"));
+
+		// the teleport ends in a tracked step: veh3 is known again
+		LifecycleLog log = new LifecycleLog();
+		conn.addVehicleLifecycleObserver(log);
+		conn.nextSimStep();
+		assertEquals(Arrays.asList("departed veh3", "teleport ending veh3"), log.events);
+		Vehicle v = conn.getVehicleRepository().getByID("veh3");
+		assertNotNull(v);
+		assertEquals("e2_0", v.queryReadCurrentLane().get().getID());
+		assertEquals(10, conn.getVehicleRepository().getIDs().size());
+	}
+
+	@Test
+	public void testConcurrentClients() throws Exception {
+		final int clients = 4;
+		connect().close();
+
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		try {
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < clients; i++) {
+				results.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						SumoTraciConnection c = connect();
+						try {
+							for (int i = 0; i < 20; i++)
+								c.nextSimStep();
+							return c.getVehicleRepository().getIDs().size();
+						} finally {
+							c.close();
+						}
+					}
+				}));
+			}
+			for (Future<Integer> result : results)
+				assertEquals(10, (int) result.get());
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(clients + 1, server.getAcceptedCount());
+	}
+
+	@Test
+	public void testLockStep() throws IOException, InterruptedException {
+		conn = connect();
+		SumoTraciConnection other = connect();
+		try {
+			LockStepDriver driver = new LockStepDriver(conn, other);
+			for (int i = 0; i < 5; i++)
+				driver.step();
+			assertEquals(5000, conn.getCurrentSimTime());
+			assertEquals(5000, other.getCurrentSimTime());
+		} finally {
+			other.close();
+		}
+	}
+
+	@Test
+	public void testLargePopulation() throws IOException, InterruptedException {
+		scenario.setLaneCount(1000);
+		scenario.setInitialVehicles(100000);
+		scenario.setDeparturesPerStep(1000);
+		scenario.setTripSteps(100);
+		conn = connect();
+		assertEquals(100000, conn.getVehicleRepository().getIDs().size());
+		for (int i = 0; i < 10; i++)
+			conn.nextSimStep();
+		assertEquals(110000, conn.getVehicleRepository().getIDs().size());
+	}
+}
@@ -0,0 +1,94 @@
+/*   
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test;
+
+import static org.junit.Assert.*;
+import it.polito.appeal.traci.LockStepDriver;
+import it.polito.appeal.traci.StepAdvanceListener;
+import it.polito.appeal.traci.SumoTraciConnection;
+import it.polito.appeal.traci.test.fake.FakeScenario;
+import it.polito.appeal.traci.test.fake.FakeTraciServer;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Drives two simulations of a {@link FakeTraciServer}, so it doesn't need
+ * SUMO.
+ */
+@SuppressWarnings("javadoc")
+public class LockStepDriverTest {
+
+	private FakeTraciServer server;
+
+	private SumoTraciConnection conn;
+
+	private SumoTraciConnection other;
+
+	@Before
+	public void setUp() throws IOException, InterruptedException {
+		server = new FakeTraciServer(new FakeScenario());
+		server.start();
+		conn = new SumoTraciConnection(server.getAddress(), server.getPort());
+		other = new SumoTraciConnection(server.getAddress(), server.getPort());
+	}
+
+	@After
+	public void tearDown() throws IOException, InterruptedException {
+		if (conn != null)
+			conn.close();
+		if (other != null)
+			other.close();
+		server.close();
+	}
+
+	@Test
+	public void testStepAdvancesAll() throws IOException {
+		LockStepDriver driver = new LockStepDriver(conn, other);
+		final int[] barrierSteps = new int[1];
+		driver.addStepAdvanceListener(new StepAdvanceListener() {
+			@Override
+			public void nextStep(double step) {
+				barrierSteps[0]++;
+				assertEquals(conn.getCurrentSimTime(), other.getCurrentSimTime());
+			}
+		});
+
+		for (int i = 0; i < 10; i++)
+			driver.step();
+
+		assertEquals(10, barrierSteps[0]);
+		assertEquals(10000, conn.getCurrentSimTime());
+		assertEquals(10000, other.getCurrentSimTime());
+		assertEquals(conn.getVehicleRepository().getIDs(),
+				other.getVehicleRepository().getIDs());
+	}
+
+	@Test
+	public void testConnectionsUsableAfterLockStep() throws IOException {
+		new LockStepDriver(conn, other).step();
+		conn.nextSimStep();
+		assertEquals(2000, conn.getCurrentSimTime());
+		assertEquals(1000, other.getSimulationData().queryCurrentSimTime().get().intValue());
+	}
+}
@@ -0,0 +1,137 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test;
+
+import static org.junit.Assert.*;
+import it.polito.appeal.traci.CoalescedReads;
+import it.polito.appeal.traci.MultiQuery;
+import it.polito.appeal.traci.RoundTripMonitor;
+import it.polito.appeal.traci.SumoTraciConnection;
+import it.polito.appeal.traci.Vehicle;
+import it.polito.appeal.traci.test.fake.FakeScenario;
+import it.polito.appeal.traci.test.fake.FakeTraciServer;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs against a {@link FakeTraciServer}, so it doesn't need SUMO.
+ */
+@SuppressWarnings("javadoc")
+public class RoundTripMonitorTest {
+
+	private FakeTraciServer server;
+
+	private SumoTraciConnection conn;
+
+	private RoundTripMonitor monitor;
+
+	@Before
+	public void setUp() throws IOException, InterruptedException {
+		FakeScenario scenario = new FakeScenario();
+		scenario.setInitialVehicles(10);
+		server = new FakeTraciServer(scenario);
+		server.start();
+		conn = new SumoTraciConnection(server.getAddress(), server.getPort());
+		monitor = conn.getRoundTripMonitor();
+	}
+
+	@After
+	public void tearDown() throws IOException, InterruptedException {
+		conn.close();
+		server.close();
+	}
+
+	private void readAllSpeeds() throws IOException {
+		for (Vehicle v : conn.getVehicleRepository().getAll().values())
+			v.queryReadSpeed().get();
+	}
+
+	@Test
+	public void testSingleReads() throws IOException {
+		readAllSpeeds();
+		readAllSpeeds();
+		assertEquals(10, monitor.getSingleReads());
+		assertEquals(0, monitor.getBatchedRuns());
+
+		Map<String, Long> sources = monitor.getSingleReadSources();
+		assertEquals(1, sources.size());
+		String source = sources.keySet().iterator().next();
+		assertEquals("DoubleQ [0xa4/0x40]", source);
+		assertEquals(10L, (long) sources.get(source));
+		assertTrue(monitor.report().contains("10 single-value round trips"));
+	}
+
+	@Test
+	public void testCoalescedReads() throws IOException {
+		// only the queries made before are coalesced
+		CoalescedReads scope = conn.coalesceReads();
+		try {
+			readAllSpeeds();
+			assertEquals(10, monitor.getSingleReads());
+			conn.nextSimStep();
+			monitor.reset();
+			readAllSpeeds();
+		} finally {
+			scope.close();
+		}
+		assertEquals(0, monitor.getSingleReads());
+		assertEquals(1, monitor.getBatchedRuns());
+		assertEquals(10, monitor.getBatchedQueries());
+	}
+
+	@Test
+	public void testMultiQuery() throws IOException {
+		MultiQuery multi = conn.makeMultiQuery();
+		for (Vehicle v : conn.getVehicleRepository().getAll().values())
+			multi.add(v.queryReadSpeed());
+		multi.run();
+		readAllSpeeds();
+		assertEquals(0, monitor.getSingleReads());
+		assertEquals(1, monitor.getBatchedRuns());
+		assertEquals(10, monitor.getBatchedQueries());
+	}
+
+	@Test
+	public void testCallSites() throws IOException {
+		monitor.setTrackCallSites(true);
+		readAllSpeeds();
+		String source = monitor.getSingleReadSources().keySet().iterator().next();
+		assertTrue(source, source.startsWith("DoubleQ [0xa4/0x40] at "
+				+ RoundTripMonitorTest.class.getName() + ".readAllSpeeds("));
+	}
+
+	@Test
+	public void testWarningAndReset() throws IOException {
+		monitor.setWarningThreshold(5);
+		readAllSpeeds();
+		conn.nextSimStep();
+		readAllSpeeds();
+		assertEquals(20, monitor.getSingleReads());
+
+		monitor.reset();
+		assertEquals(0, monitor.getSingleReads());
+		assertTrue(monitor.getSingleReadSources().isEmpty());
+	}
+}
@@ -0,0 +1,118 @@
+/*   
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test;
+
+import static org.junit.Assert.*;
+import it.polito.appeal.traci.SumoConnectionPool;
+import it.polito.appeal.traci.SumoTraciConnection;
+import it.polito.appeal.traci.test.fake.FakeScenario;
+import it.polito.appeal.traci.test.fake.FakeTraciServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the simulations of the pool against a {@link FakeTraciServer}, so it
+ * doesn't need SUMO.
+ */
+@SuppressWarnings("javadoc")
+public class SumoConnectionPoolTest {
+
+	private static final String SIM_CONFIG_LOCATION = "test/resources/sumo_maps/box1l/test.sumo.cfg";
+
+	private FakeTraciServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new FakeTraciServer(new FakeScenario());
+		server.start();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+	}
+
+	/**
+	 * A pool whose simulations connect to the fake server instead of
+	 * starting SUMO; each connection gets a simulation of its own.
+	 */
+	private class FakeConnectionPool extends SumoConnectionPool {
+
+		FakeConnectionPool(int maxParallel) {
+			super(SIM_CONFIG_LOCATION, maxParallel);
+		}
+
+		@Override
+		protected SumoTraciConnection newConnection(int seed) throws IOException,
+				InterruptedException {
+			return new SumoTraciConnection(server.getAddress(), server.getPort());
+		}
+	}
+
+	@Test
+	public void testRunAll() throws Exception {
+		SumoConnectionPool pool = new FakeConnectionPool(2);
+		List<Integer> times = pool.runAll(new int[] { 1, 2, 3 },
+				new SumoConnectionPool.SimulationTask<Integer>() {
+					@Override
+					public Integer run(SumoTraciConnection conn) throws Exception {
+						for (int i = 0; i < 10; i++)
+							conn.nextSimStep();
+						return conn.getCurrentSimTime();
+					}
+				});
+		assertEquals(3, times.size());
+		for (int time : times)
+			assertEquals(10000, time);
+		assertEquals(3, server.getAcceptedCount());
+	}
+
+	@Test
+	public void testMaxParallel() {
+		assertEquals(1, new SumoConnectionPool(SIM_CONFIG_LOCATION, 1).getMaxParallel());
+		assertEquals(Runtime.getRuntime().availableProcessors(),
+				new SumoConnectionPool(SIM_CONFIG_LOCATION).getMaxParallel());
+		assertEquals(Runtime.getRuntime().availableProcessors(),
+				new SumoConnectionPool(SIM_CONFIG_LOCATION, Integer.MAX_VALUE).getMaxParallel());
+	}
+
+	@Test
+	public void testFailureIsReported() throws Exception {
+		SumoConnectionPool pool = new FakeConnectionPool(2);
+		try {
+			pool.runAll(new int[] { 1, 2 },
+					new SumoConnectionPool.SimulationTask<Void>() {
+						@Override
+						public Void run(SumoTraciConnection conn) throws Exception {
+							throw new IllegalStateException("failed");
+						}
+					});
+			fail("failure not reported");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+}
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -36,11 +37,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -52,6 +55,7 @@ import it.polito.appeal.traci.AddRouteQuery;
 import it.polito.appeal.traci.AddVehicleQuery;
 import it.polito.appeal.traci.ChangeEdgeTravelTimeQuery;
 import it.polito.appeal.traci.ChangeGlobalTravelTimeQuery;
+import it.polito.appeal.traci.CoalescedReads;
 import it.polito.appeal.traci.Edge;
 import it.polito.appeal.traci.InductionLoop;
 import it.polito.appeal.traci.LaArDetector;
@@ -60,12 +64,16 @@ import it.polito.appeal.traci.Link;
 import it.polito.appeal.traci.MeMeDetector;
 import it.polito.appeal.traci.MultiQuery;
 import it.polito.appeal.traci.POI;
+import it.polito.appeal.traci.QueryPipeline;
 import it.polito.appeal.traci.ReadGlobalTravelTimeQuery;
+import it.polito.appeal.traci.ReadObjectVarQuery;
 import it.polito.appeal.traci.RemoveVehicleQuery;
 import it.polito.appeal.traci.Repository;
 import it.polito.appeal.traci.Route;
+import it.polito.appeal.traci.SubscribeContextQuery;
 import it.polito.appeal.traci.SumoTraciConnection;
 import it.polito.appeal.traci.Vehicle;
+import it.polito.appeal.traci.VehicleSnapshot;
 import it.polito.appeal.traci.VehicleLifecycleObserver;
 import it.polito.appeal.traci.VehicleType;
 
@@ -134,6 +142,93 @@ public class TraCITest extends SingleSimTraCITest {
 		assertEquals(1000, conn.getCurrentSimTime());
 	}
 
+	/**
+	 * {@link SumoTraciConnection#nextSimStep(int)} should jump many steps at
+	 * once.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testNextSimStepMany() throws IOException {
+		conn.nextSimStep(10);
+		assertEquals(10000, conn.getCurrentSimTime());
+		assertEquals(10000, conn.getSimulationData().queryCurrentSimTime().get().intValue());
+	}
+
+	/**
+	 * After {@link SumoTraciConnection#runUntil(int)}, the vehicle
+	 * repository must be consistent with SUMO.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testRunUntilReconcilesVehicles() throws IOException {
+		final Set<String> departed = new HashSet<String>();
+		conn.addVehicleLifecycleObserver(new VehicleLifecycleObserver() {
+			public void vehicleDeparted(Vehicle vehicle) {
+				departed.add(vehicle.getID());
+			}
+			public void vehicleArrived(Vehicle vehicle) {
+				departed.remove(vehicle.getID());
+			}
+			public void vehicleTeleportStarting(Vehicle vehicle) {
+			}
+			public void vehicleTeleportEnding(Vehicle vehicle) {
+			}
+		});
+		conn.runUntil(100000);
+		assertEquals(100000, conn.getCurrentSimTime());
+		Set<String> ids = conn.getVehicleRepository().getIDs();
+		assertFalse(ids.isEmpty());
+		assertEquals(ids, departed);
+
+		conn.nextSimStep();
+		assertEquals(101000, conn.getCurrentSimTime());
+	}
+
+	/**
+	 * Without lifecycle observers, the vehicles are not tracked at every step,
+	 * but the vehicle repository must be consistent with SUMO anyway when
+	 * used.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testUntrackedStepsReconcileVehicles() throws IOException {
+		for (int i = 0; i < 50; i++)
+			conn.nextSimStep();
+		Repository<Vehicle> repo = conn.getVehicleRepository();
+		Set<String> ids = new HashSet<String>(repo.getIDs());
+		assertFalse(ids.isEmpty());
+		assertEquals(new HashSet<String>(repo.getQuery().get()), ids);
+
+		String id = ids.iterator().next();
+		Vehicle v = repo.getByID(id);
+		assertSame(v, repo.getByID(id));
+
+		for (int i = 0; i < 50; i++)
+			conn.nextSimStep();
+		assertEquals(new HashSet<String>(repo.getQuery().get()), repo.getIDs());
+	}
+
+	/**
+	 * Read queries are made when first needed, but each variable must still
+	 * have a single query instance, that works like an eagerly made one.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testLazyReadQueries() throws IOException {
+		getFirstVehicle();
+		Vehicle v = firstVehicle;
+		ReadObjectVarQuery<?> speedQ = v.getReadQuery(Vehicle.Variable.SPEED);
+		assertNotNull(speedQ);
+		assertSame(speedQ, v.queryReadSpeed());
+		assertSame(speedQ, v.getAllReadQueries().get(Vehicle.Variable.SPEED));
+		assertEquals(Vehicle.Variable.values().length, v.getAllReadQueries().size());
+		assertSame(v.queryChangeSpeed(), v.queryChangeSpeed());
+	}
+
 	/**
 	 * This test shows how a vehicle lifecycle listener can be attached to the
 	 * simulation, and how its callbacks are called by TraCI4J when something
@@ -209,6 +304,199 @@ public class TraCITest extends SingleSimTraCITest {
 		}
 	}
 
+	/**
+	 * Subscribed variables are pushed by SUMO at every step, so they are
+	 * already cached when read.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testVariableSubscription() throws IOException {
+		conn.nextSimStep();
+		Vehicle v = conn.getVehicleRepository().getByID("0.0");
+		v.subscribe(EnumSet.of(Vehicle.Variable.SPEED, Vehicle.Variable.LANE_POSITION));
+		assertTrue(v.queryReadSpeed().hasValue());
+
+		conn.nextSimStep();
+		assertTrue(v.queryReadSpeed().hasValue());
+		assertTrue(v.queryReadLanePosition().hasValue());
+		assertFalse(v.queryReadPosition().hasValue());
+		assertEquals(1.886542, v.getLanePosition(), DELTA);
+
+		v.unsubscribe();
+		conn.nextSimStep();
+		assertFalse(v.queryReadSpeed().hasValue());
+	}
+
+	/**
+	 * A context subscription on a vehicle reports the vehicles around it,
+	 * including itself, with the subscribed variables already read.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testContextSubscription() throws IOException {
+		for (int i = 0; i < 10; i++)
+			conn.nextSimStep();
+		Repository<Vehicle> vehicles = conn.getVehicleRepository();
+		Vehicle v = vehicles.getByID("0.0");
+		SubscribeContextQuery<Vehicle> q = v.querySubscribeContext(vehicles,
+				1000, EnumSet.of(Vehicle.Variable.SPEED));
+		q.run();
+		assertTrue(q.getObjects().containsKey("0.0"));
+
+		conn.nextSimStep();
+		Map<String, Vehicle> around = q.getObjects();
+		assertTrue(around.containsKey("0.0"));
+		for (Vehicle near : around.values())
+			assertTrue(near.queryReadSpeed().hasValue());
+
+		v.querySubscribeContext(vehicles, 1000,
+				Collections.<Vehicle.Variable> emptySet()).run();
+		assertTrue(q.getObjects().isEmpty());
+	}
+
+	/**
+	 * Queries submitted to the pipeline give the same results as synchronous
+	 * ones, even when several request messages are in flight.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testPipelinedQueries() throws Exception {
+		for (int i = 0; i < 10; i++)
+			conn.nextSimStep();
+		QueryPipeline pipeline = conn.getQueryPipeline();
+		Vehicle v = conn.getVehicleRepository().getByID("0.0");
+
+		Future<Double> speed = pipeline.submit(v.queryReadSpeed());
+		Future<Edge> edge = pipeline.submit(v.queryReadCurrentEdge());
+		Future<Integer> time = pipeline.submit(conn.getSimulationData().queryCurrentSimTime());
+		assertEquals(conn.getCurrentSimTime(), (int) time.get());
+		assertNotNull(edge.get());
+		double pipelinedSpeed = speed.get();
+
+		v.queryReadSpeed().setObsolete();
+		assertEquals(v.getSpeed(), pipelinedSpeed, DELTA);
+
+		pipeline.submit(v.queryReadPosition());
+		conn.nextSimStep();
+		assertTrue(pipeline.isIdle());
+	}
+
+	/**
+	 * Inside a coalescing scope, reading a variable of a vehicle reads the
+	 * same variable of all the other vehicles.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testCoalescedReads() throws IOException {
+		for (int i = 0; i < 10; i++)
+			conn.nextSimStep();
+		Collection<Vehicle> all = conn.getVehicleRepository().getAll().values();
+		assertTrue(all.size() > 1);
+		// only the queries already made are coalesced
+		for (Vehicle v : all)
+			v.queryReadSpeed();
+
+		CoalescedReads scope = conn.coalesceReads();
+		try {
+			all.iterator().next().getSpeed();
+			for (Vehicle v : all)
+				assertTrue(v.queryReadSpeed().hasValue());
+			assertFalse(all.iterator().next().queryReadPosition().hasValue());
+		} finally {
+			scope.close();
+		}
+		assertFalse(scope.isOpen());
+
+		conn.nextSimStep();
+		Iterator<Vehicle> it = conn.getVehicleRepository().getAll().values().iterator();
+		it.next().getSpeed();
+		assertFalse(it.next().queryReadSpeed().hasValue());
+	}
+
+	/**
+	 * After a prefetch, the requested variables of all the vehicles are
+	 * cached.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testPrefetch() throws IOException {
+		for (int i = 0; i < 10; i++)
+			conn.nextSimStep();
+		Repository<Vehicle> repo = conn.getVehicleRepository();
+		repo.prefetch(EnumSet.of(Vehicle.Variable.SPEED, Vehicle.Variable.POSITION));
+		for (Vehicle v : repo.getAll().values()) {
+			assertTrue(v.queryReadSpeed().hasValue());
+			assertTrue(v.queryReadPosition().hasValue());
+			assertFalse(v.queryReadLanePosition().hasValue());
+		}
+	}
+
+	/**
+	 * The ID set is reconciled only when SUMO's ID list changes.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testIDsReconciledOncePerStep() throws IOException {
+		for (int i = 0; i < 10; i++)
+			conn.nextSimStep();
+		Repository<Vehicle> repo = conn.getVehicleRepository();
+		Set<String> ids = repo.getIDs();
+		Vehicle v = repo.getByID("0.0");
+		assertSame(ids, repo.getIDs());
+		assertSame(v, repo.getByID("0.0"));
+
+		conn.nextSimStep();
+		assertEquals(new HashSet<String>(repo.getQuery().get()), repo.getIDs());
+		assertSame(v, repo.getByID("0.0"));
+	}
+
+	/**
+	 * A vehicle snapshot holds the same values as the vehicles' own queries.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testVehicleSnapshot() throws IOException {
+		VehicleSnapshot snapshot = conn.makeVehicleSnapshot();
+		snapshot.update();
+		assertEquals(0, snapshot.size());
+
+		for (int i = 0; i < 10; i++)
+			conn.nextSimStep();
+		snapshot.update();
+		Repository<Vehicle> repo = conn.getVehicleRepository();
+		assertEquals(repo.getIDs().size(), snapshot.size());
+		for (int i = 0; i < snapshot.size(); i++) {
+			Vehicle v = repo.getByID(snapshot.getIDs()[i]);
+			assertEquals(v.getPosition().getX(), snapshot.getX()[i], DELTA);
+			assertEquals(v.getPosition().getY(), snapshot.getY()[i], DELTA);
+			assertEquals(v.getSpeed(), snapshot.getSpeed()[i], DELTA);
+			assertEquals(v.getLaneIndex(), snapshot.getLaneIndex()[i]);
+		}
+	}
+
+	/**
+	 * Vehicles departing after {@link Repository#subscribeAll(Collection)}
+	 * are subscribed as well.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testSubscribeAllIncludesDeparted() throws IOException {
+		conn.getVehicleRepository().subscribeAll(EnumSet.of(Vehicle.Variable.SPEED));
+		for (int i = 0; i < 10; i++)
+			conn.nextSimStep();
+
+		for (Vehicle v : conn.getVehicleRepository().getAll().values())
+			assertTrue(v.queryReadSpeed().hasValue());
+	}
+
 	/**
 	 * Normally, the simulation at step zero contains no vehicles.
 	 * 
@@ -827,7 +1115,7 @@ public class TraCITest extends SingleSimTraCITest {
 		Repository<MeMeDetector> memeRepo = conn.getMeMeDetectorRepository();
 		MeMeDetector detector = memeRepo.getByID("e3_0");
 
-		assertEquals(39, (int) detector.getVehicleNumber());
+		assertEquals(39, detector.getVehicleNumber());
 	}
 
 	/**
@@ -882,7 +1170,7 @@ public class TraCITest extends SingleSimTraCITest {
 		Repository<LaArDetector> laArRepo = conn.getLaArDetectorRepository();
 		LaArDetector detector = laArRepo.getByID("e2_0");
 
-		assertEquals(1, (int) detector.getVehicleNumber());
+		assertEquals(1, detector.getVehicleNumber());
 	}
 
 	/**
@@ -935,7 +1223,7 @@ public class TraCITest extends SingleSimTraCITest {
 		Repository<InductionLoop> laArRepo = conn.getInductionLoopRepository();
 		InductionLoop detector = laArRepo.getByID("e1_0");
 
-		assertEquals(1, (int) detector.getVehicleNumber());
+		assertEquals(1, detector.getVehicleNumber());
 	}
 
 	/**
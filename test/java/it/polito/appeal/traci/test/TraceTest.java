@@ -0,0 +1,156 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test;
+
+import static org.junit.Assert.*;
+import it.polito.appeal.traci.SumoTraciConnection;
+import it.polito.appeal.traci.TraceRecorder;
+import it.polito.appeal.traci.TraceReplay;
+import it.polito.appeal.traci.Vehicle;
+import it.polito.appeal.traci.test.fake.FakeScenario;
+import it.polito.appeal.traci.test.fake.FakeTraciServer;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Records sessions with a {@link FakeTraciServer} and plays them back.
+ */
+@SuppressWarnings("javadoc")
+public class TraceTest {
+
+	private File traceFile;
+
+	private FakeTraciServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		traceFile = File.createTempFile("traci", ".trace");
+		traceFile.deleteOnExit();
+
+		FakeScenario scenario = new FakeScenario();
+		scenario.setLaneCount(4);
+		scenario.setTrafficLightCount(1);
+		scenario.setInitialVehicles(5);
+		scenario.setDeparturesPerStep(1);
+		scenario.setTripSteps(10);
+		server = new FakeTraciServer(scenario);
+		server.start();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+		traceFile.delete();
+	}
+
+	/**
+	 * Runs a few steps, reading values both one at a time and via a
+	 * subscription.
+	 */
+	private static List<Object> runSession(SumoTraciConnection conn) throws IOException {
+		List<Object> values = new ArrayList<Object>();
+		Vehicle subscribed = conn.getVehicleRepository().getByID("veh4");
+		subscribed.subscribe(EnumSet.of(Vehicle.Variable.LANE_POSITION));
+		for (int i = 0; i < 5; i++) {
+			values.add(conn.getCurrentSimTime());
+			for (Vehicle v : conn.getVehicleRepository().getAll().values()) {
+				values.add(v.getID());
+				values.add(v.queryReadSpeed().get());
+				values.add(v.queryReadCurrentLane().get().getID());
+			}
+			values.add(subscribed.queryReadLanePosition().get());
+			values.add(conn.getTrafficLightRepository().getByID("tl0").queryReadCurrentPhase().get());
+			conn.nextSimStep();
+		}
+		return values;
+	}
+
+	private List<Object> record() throws IOException, InterruptedException {
+		SumoTraciConnection conn = new SumoTraciConnection(server.getAddress(), server.getPort(), traceFile);
+		List<Object> values = runSession(conn);
+		conn.close();
+		return values;
+	}
+
+	@Test
+	public void testTraceFormat() throws IOException, InterruptedException {
+		record();
+		// trimmed to the recorded size on close
+		assertTrue(traceFile.length() < 1 << 20);
+
+		DataInputStream in = new DataInputStream(new FileInputStream(traceFile));
+		try {
+			assertEquals(TraceRecorder.MAGIC, in.readInt());
+			assertEquals(TraceRecorder.REQUEST, in.readByte());
+			assertTrue(in.readLong() >= 0);
+			int length = in.readInt();
+			assertTrue(length > 4 && length < traceFile.length());
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testReplayWithoutServer() throws IOException, InterruptedException {
+		List<Object> recorded = record();
+		server.close();
+
+		TraceReplay replay = new TraceReplay(traceFile);
+		assertTrue(replay.getRequestCount() > 0);
+		assertEquals(replay.getRequestCount(), replay.getResponseCount());
+
+		SumoTraciConnection conn = new SumoTraciConnection(replay);
+		assertEquals(recorded, runSession(conn));
+		conn.close();
+		assertTrue(conn.isClosed());
+		assertEquals(replay.getRequestCount(), replay.getRequestsReplayed());
+	}
+
+	@Test
+	public void testDivergingRequest() throws IOException, InterruptedException {
+		record();
+
+		TraceReplay replay = new TraceReplay(traceFile);
+		try {
+			SumoTraciConnection conn = new SumoTraciConnection(replay);
+			conn.getVehicleRepository().getByID("veh0").queryReadLanePosition().get();
+			fail("request not in the trace was accepted");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("differs from the trace"));
+		} finally {
+			replay.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotATrace() throws IOException {
+		new TraceReplay(traceFile).close();
+	}
+}
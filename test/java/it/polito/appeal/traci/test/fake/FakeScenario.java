@@ -0,0 +1,255 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test.fake;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the synthetic network and traffic that a {@link FakeTraciServer}
+ * simulates for each of its clients.
+ * <p>
+ * The network is made of {@link #setLaneCount(int) N} straight, parallel,
+ * single-lane edges named <code>e0</code>...<code>eN-1</code>, whose lanes
+ * are <code>e0_0</code>...<code>eN-1_0</code>. A vehicle that reaches the end
+ * of a lane continues on the next one.
+ * <p>
+ * Vehicles are named <code>veh0</code>, <code>veh1</code>... in order of
+ * departure. The first {@link #setInitialVehicles(int) initial vehicles} are
+ * already in the network when the client connects, then
+ * {@link #setDeparturesPerStep(int) some more} depart at every step, and
+ * each one arrives after {@link #setTripSteps(int) a fixed number of steps}.
+ * <p>
+ * Traffic lights are named <code>tl0</code>, <code>tl1</code>... and all
+ * cycle through the same four-phase program.
+ * <p>
+ * Anything else can be arranged by {@link #addScript(Script) scripts}, that
+ * run at every step on the {@link FakeSimulation} of each client.
+ * <p>
+ * A scenario must not be modified after the server is started.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public class FakeScenario {
+
+	/**
+	 * Something that happens at every simulation step, after the scheduled
+	 * departures and arrivals.
+	 * <p>
+	 * Since each client of a server has its own simulation, a script shared
+	 * by more clients may run concurrently.
+	 */
+	public interface Script {
+		/**
+		 * @param sim
+		 *            the simulation of the client that requested the step
+		 */
+		void step(FakeSimulation sim);
+	}
+
+	private int beginTime = 0;
+	private int stepLength = 1000;
+	private int laneCount = 10;
+	private double laneLength = 500;
+	private double laneMaxSpeed = 13.89;
+	private int trafficLightCount = 0;
+	private int phaseSteps = 30;
+	private int initialVehicles = 0;
+	private int departuresPerStep = 0;
+	private int tripSteps = 0;
+	private final List<Script> scripts = new ArrayList<Script>();
+
+	/**
+	 * @return the simulation time at connection, in ms
+	 */
+	public int getBeginTime() {
+		return beginTime;
+	}
+
+	/**
+	 * @param beginTime
+	 *            the simulation time at connection, in ms
+	 */
+	public void setBeginTime(int beginTime) {
+		this.beginTime = beginTime;
+	}
+
+	/**
+	 * @return the length of a simulation step, in ms
+	 */
+	public int getStepLength() {
+		return stepLength;
+	}
+
+	/**
+	 * @param stepLength
+	 *            the length of a simulation step, in ms
+	 */
+	public void setStepLength(int stepLength) {
+		if (stepLength <= 0)
+			throw new IllegalArgumentException("step length must be positive");
+		this.stepLength = stepLength;
+	}
+
+	/**
+	 * @return the number of edges, and lanes, of the network
+	 */
+	public int getLaneCount() {
+		return laneCount;
+	}
+
+	/**
+	 * @param laneCount
+	 *            the number of edges, and lanes, of the network
+	 */
+	public void setLaneCount(int laneCount) {
+		if (laneCount <= 0)
+			throw new IllegalArgumentException("at least a lane is needed");
+		this.laneCount = laneCount;
+	}
+
+	/**
+	 * @return the length of each lane, in m
+	 */
+	public double getLaneLength() {
+		return laneLength;
+	}
+
+	/**
+	 * @param laneLength
+	 *            the length of each lane, in m
+	 */
+	public void setLaneLength(double laneLength) {
+		this.laneLength = laneLength;
+	}
+
+	/**
+	 * @return the speed limit of each lane, in m/s
+	 */
+	public double getLaneMaxSpeed() {
+		return laneMaxSpeed;
+	}
+
+	/**
+	 * @param laneMaxSpeed
+	 *            the speed limit of each lane, in m/s
+	 */
+	public void setLaneMaxSpeed(double laneMaxSpeed) {
+		this.laneMaxSpeed = laneMaxSpeed;
+	}
+
+	/**
+	 * @return the number of traffic lights
+	 */
+	public int getTrafficLightCount() {
+		return trafficLightCount;
+	}
+
+	/**
+	 * @param trafficLightCount
+	 *            the number of traffic lights
+	 */
+	public void setTrafficLightCount(int trafficLightCount) {
+		this.trafficLightCount = trafficLightCount;
+	}
+
+	/**
+	 * @return the number of steps each traffic light phase lasts
+	 */
+	public int getPhaseSteps() {
+		return phaseSteps;
+	}
+
+	/**
+	 * @param phaseSteps
+	 *            the number of steps each traffic light phase lasts
+	 */
+	public void setPhaseSteps(int phaseSteps) {
+		if (phaseSteps <= 0)
+			throw new IllegalArgumentException("phases must last at least a step");
+		this.phaseSteps = phaseSteps;
+	}
+
+	/**
+	 * @return the number of vehicles in the network at connection
+	 */
+	public int getInitialVehicles() {
+		return initialVehicles;
+	}
+
+	/**
+	 * @param initialVehicles
+	 *            the number of vehicles in the network at connection
+	 */
+	public void setInitialVehicles(int initialVehicles) {
+		this.initialVehicles = initialVehicles;
+	}
+
+	/**
+	 * @return the number of vehicles that depart at every step
+	 */
+	public int getDeparturesPerStep() {
+		return departuresPerStep;
+	}
+
+	/**
+	 * @param departuresPerStep
+	 *            the number of vehicles that depart at every step
+	 */
+	public void setDeparturesPerStep(int departuresPerStep) {
+		this.departuresPerStep = departuresPerStep;
+	}
+
+	/**
+	 * @return the number of steps a vehicle stays in the network, or 0 if
+	 *         vehicles never arrive
+	 */
+	public int getTripSteps() {
+		return tripSteps;
+	}
+
+	/**
+	 * @param tripSteps
+	 *            the number of steps a vehicle stays in the network, or 0 if
+	 *            vehicles never arrive
+	 */
+	public void setTripSteps(int tripSteps) {
+		this.tripSteps = tripSteps;
+	}
+
+	/**
+	 * Adds a script that will run at every step, in the order they were
+	 * added.
+	 *
+	 * @param script
+	 */
+	public void addScript(Script script) {
+		scripts.add(script);
+	}
+
+	/**
+	 * @return the scripts
+	 */
+	public List<Script> getScripts() {
+		return Collections.unmodifiableList(scripts);
+	}
+}
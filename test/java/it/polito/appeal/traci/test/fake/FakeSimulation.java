@@ -0,0 +1,549 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test.fake;
+
+import it.polito.appeal.traci.protocol.Constants;
+import it.polito.appeal.traci.protocol.StringList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uniluebeck.itm.tcpip.Storage;
+
+/**
+ * The state of the simulation of a single client of a
+ * {@link FakeTraciServer}, built from a {@link FakeScenario}.
+ * <p>
+ * Vehicles move at a constant speed along the lanes; nothing else happens
+ * unless a {@link FakeScenario.Script} makes it happen. Instances are
+ * confined to the thread serving the client.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public class FakeSimulation {
+
+	/**
+	 * The distance between the axes of two adjacent lanes, in m.
+	 */
+	static final double LANE_SPACING = 3.2;
+
+	static final String VEHICLE_TYPE = "DEFAULT_VEHTYPE";
+
+	static final String[] PHASES = { "GGgrrr", "yyyrrr", "rrrGGg", "rrryyy" };
+
+	private static class Vehicle {
+		final int departStep;
+		final double speed;
+		int lane;
+		double pos;
+
+		Vehicle(int departStep, double speed, int lane, double pos) {
+			this.departStep = departStep;
+			this.speed = speed;
+			this.lane = lane;
+			this.pos = pos;
+		}
+	}
+
+	private final FakeScenario scenario;
+
+	private final Map<String, Vehicle> vehicles = new LinkedHashMap<String, Vehicle>();
+
+	/**
+	 * Vehicles that left the network to teleport, and will come back with
+	 * {@link #endTeleport(String, int)}.
+	 */
+	private final Map<String, Vehicle> teleporting = new HashMap<String, Vehicle>();
+
+	private final StringList laneIDs = new StringList();
+	private final StringList edgeIDs = new StringList();
+	private final StringList trafficLightIDs = new StringList();
+
+	private final int[] laneOccupancy;
+
+	private int time;
+	private int step = 0;
+	private int nextVehicle = 0;
+
+	private final StringList departed = new StringList();
+	private final StringList arrived = new StringList();
+	private final StringList teleportStarting = new StringList();
+	private final StringList teleportEnding = new StringList();
+
+	FakeSimulation(FakeScenario scenario) {
+		this.scenario = scenario;
+		time = scenario.getBeginTime();
+
+		for (int i = 0; i < scenario.getLaneCount(); i++) {
+			edgeIDs.add("e" + i);
+			laneIDs.add("e" + i + "_0");
+		}
+		for (int i = 0; i < scenario.getTrafficLightCount(); i++)
+			trafficLightIDs.add("tl" + i);
+		laneOccupancy = new int[scenario.getLaneCount()];
+
+		/*
+		 * the initial vehicles are spread along the lanes and are not
+		 * reported as departed, as they were there before the client came
+		 */
+		for (int i = 0; i < scenario.getInitialVehicles(); i++) {
+			int lane = nextVehicle % scenario.getLaneCount();
+			double pos = (nextVehicle * 7.5) % scenario.getLaneLength();
+			addVehicle(lane, pos);
+		}
+		departed.clear();
+	}
+
+	/**
+	 * @return the current simulation time, in ms
+	 */
+	public int getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the number of steps simulated so far
+	 */
+	public int getStep() {
+		return step;
+	}
+
+	/**
+	 * @return the IDs of the vehicles in the network, in order of departure
+	 */
+	public List<String> getVehicleIDs() {
+		return new ArrayList<String>(vehicles.keySet());
+	}
+
+	/**
+	 * @param vehicleID
+	 * @return <code>true</code> if the vehicle is in the network
+	 */
+	public boolean hasVehicle(String vehicleID) {
+		return vehicles.containsKey(vehicleID);
+	}
+
+	/**
+	 * Makes a new vehicle depart at the beginning of the given lane.
+	 *
+	 * @param lane
+	 *            the lane index, from 0 to {@link FakeScenario#getLaneCount()}
+	 *            - 1
+	 * @return the ID of the new vehicle
+	 */
+	public String depart(int lane) {
+		if (lane < 0 || lane >= scenario.getLaneCount())
+			throw new IllegalArgumentException("no lane " + lane);
+		return addVehicle(lane, 0);
+	}
+
+	/**
+	 * Removes a vehicle from the network, as if it reached its destination.
+	 *
+	 * @param vehicleID
+	 */
+	public void arrive(String vehicleID) {
+		Vehicle v = vehicles.remove(vehicleID);
+		if (v == null)
+			throw new IllegalArgumentException("no vehicle " + vehicleID);
+		laneOccupancy[v.lane]--;
+		arrived.add(vehicleID);
+	}
+
+	/**
+	 * Teleports a vehicle to the beginning of another lane. Like SUMO does
+	 * for short teleports, the vehicle is reported both as starting and
+	 * ending a teleport in the same step.
+	 *
+	 * @param vehicleID
+	 * @param lane
+	 */
+	public void teleport(String vehicleID, int lane) {
+		Vehicle v = vehicles.get(vehicleID);
+		if (v == null)
+			throw new IllegalArgumentException("no vehicle " + vehicleID);
+		if (lane < 0 || lane >= scenario.getLaneCount())
+			throw new IllegalArgumentException("no lane " + lane);
+		laneOccupancy[v.lane]--;
+		v.lane = lane;
+		v.pos = 0;
+		laneOccupancy[lane]++;
+		teleportStarting.add(vehicleID);
+		teleportEnding.add(vehicleID);
+	}
+
+	/**
+	 * Makes a vehicle start a teleport that lasts until
+	 * {@link #endTeleport(String, int)} is called. Meanwhile, as in SUMO, the
+	 * vehicle is not in the network, i.e. it is missing from the vehicle list
+	 * and its variables can't be read.
+	 *
+	 * @param vehicleID
+	 */
+	public void startTeleport(String vehicleID) {
+		Vehicle v = vehicles.remove(vehicleID);
+		if (v == null)
+			throw new IllegalArgumentException("no vehicle " + vehicleID);
+		laneOccupancy[v.lane]--;
+		teleporting.put(vehicleID, v);
+		teleportStarting.add(vehicleID);
+	}
+
+	/**
+	 * Ends the teleport of a vehicle, putting it at the beginning of the given
+	 * lane.
+	 *
+	 * @param vehicleID
+	 * @param lane
+	 */
+	public void endTeleport(String vehicleID, int lane) {
+		if (lane < 0 || lane >= scenario.getLaneCount())
+			throw new IllegalArgumentException("no lane " + lane);
+		Vehicle v = teleporting.remove(vehicleID);
+		if (v == null)
+			throw new IllegalArgumentException("vehicle " + vehicleID + " is not teleporting");
+		v.lane = lane;
+		v.pos = 0;
+		laneOccupancy[lane]++;
+		vehicles.put(vehicleID, v);
+		teleportEnding.add(vehicleID);
+	}
+
+	private String addVehicle(int lane, double pos) {
+		int serial = nextVehicle++;
+		String id = "veh" + serial;
+		double speed = scenario.getLaneMaxSpeed() * (0.5 + (serial % 6) / 10.0);
+		vehicles.put(id, new Vehicle(step, speed, lane, pos));
+		laneOccupancy[lane]++;
+		departed.add(id);
+		return id;
+	}
+
+	/**
+	 * Simulates steps until the given time, or a single step if it's already
+	 * past. The lists of departed, arrived and teleported vehicles only
+	 * report the last step, as in SUMO.
+	 *
+	 * @param targetTime
+	 *            the time to reach, in ms
+	 */
+	void advanceTo(int targetTime) {
+		do {
+			step();
+		} while (time < targetTime);
+	}
+
+	private void step() {
+		time += scenario.getStepLength();
+		step++;
+		departed.clear();
+		arrived.clear();
+		teleportStarting.clear();
+		teleportEnding.clear();
+
+		/*
+		 * vehicles are sorted by departure, so the ones at the end of their
+		 * trip are at the head
+		 */
+		int tripSteps = scenario.getTripSteps();
+		if (tripSteps > 0) {
+			for (Iterator<Map.Entry<String, Vehicle>> it = vehicles.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<String, Vehicle> entry = it.next();
+				if (entry.getValue().departStep + tripSteps > step)
+					break;
+				laneOccupancy[entry.getValue().lane]--;
+				arrived.add(entry.getKey());
+				it.remove();
+			}
+		}
+
+		double seconds = scenario.getStepLength() / 1000.0;
+		double laneLength = scenario.getLaneLength();
+		int laneCount = scenario.getLaneCount();
+		for (Vehicle v : vehicles.values()) {
+			v.pos += v.speed * seconds;
+			while (v.pos >= laneLength) {
+				v.pos -= laneLength;
+				laneOccupancy[v.lane]--;
+				v.lane = (v.lane + 1) % laneCount;
+				laneOccupancy[v.lane]++;
+			}
+		}
+
+		for (int i = 0; i < scenario.getDeparturesPerStep(); i++)
+			addVehicle(nextVehicle % laneCount, 0);
+
+		for (FakeScenario.Script script : scenario.getScripts())
+			script.step(this);
+	}
+
+	/**
+	 * Tells if an object exists, so that it can be subscribed.
+	 *
+	 * @param getCommandID
+	 *            the "get variable" command of the object's domain
+	 * @param objectID
+	 */
+	boolean hasObject(int getCommandID, String objectID) {
+		switch (getCommandID) {
+		case Constants.CMD_GET_SIM_VARIABLE:
+			return true;
+		case Constants.CMD_GET_VEHICLE_VARIABLE:
+			return vehicles.containsKey(objectID);
+		case Constants.CMD_GET_LANE_VARIABLE:
+			return laneIDs.contains(objectID);
+		case Constants.CMD_GET_EDGE_VARIABLE:
+			return edgeIDs.contains(objectID);
+		case Constants.CMD_GET_TL_VARIABLE:
+			return trafficLightIDs.contains(objectID);
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the type and value of a variable, as found in the response to a
+	 * "get variable" command.
+	 *
+	 * @param getCommandID
+	 *            the "get variable" command of the object's domain
+	 * @param objectID
+	 * @param varID
+	 * @param out
+	 * @throws IllegalArgumentException
+	 *             if the object or the variable are unknown
+	 */
+	void writeVariable(int getCommandID, String objectID, int varID, Storage out)
+			throws IllegalArgumentException {
+		switch (getCommandID) {
+		case Constants.CMD_GET_SIM_VARIABLE:
+			writeSimVariable(varID, out);
+			break;
+		case Constants.CMD_GET_VEHICLE_VARIABLE:
+			writeVehicleVariable(objectID, varID, out);
+			break;
+		case Constants.CMD_GET_LANE_VARIABLE:
+			writeLaneVariable(objectID, varID, out);
+			break;
+		case Constants.CMD_GET_EDGE_VARIABLE:
+			writeEdgeVariable(objectID, varID, out);
+			break;
+		case Constants.CMD_GET_TL_VARIABLE:
+			writeTrafficLightVariable(objectID, varID, out);
+			break;
+		default:
+			/*
+			 * all other domains are empty
+			 */
+			if (!writeIDVariable(new StringList(), varID, out))
+				throw new IllegalArgumentException("no object " + objectID);
+		}
+	}
+
+	private static boolean writeIDVariable(StringList ids, int varID, Storage out) {
+		if (varID == Constants.ID_LIST) {
+			ids.writeTo(out, true);
+			return true;
+		}
+		if (varID == Constants.ID_COUNT) {
+			writeInt(ids.size(), out);
+			return true;
+		}
+		return false;
+	}
+
+	private void writeSimVariable(int varID, Storage out) {
+		switch (varID) {
+		case Constants.VAR_TIME_STEP:
+			writeInt(time, out);
+			break;
+		case Constants.VAR_DEPARTED_VEHICLES_IDS:
+			departed.writeTo(out, true);
+			break;
+		case Constants.VAR_ARRIVED_VEHICLES_IDS:
+			arrived.writeTo(out, true);
+			break;
+		case Constants.VAR_TELEPORT_STARTING_VEHICLES_IDS:
+			teleportStarting.writeTo(out, true);
+			break;
+		case Constants.VAR_TELEPORT_ENDING_VEHICLES_IDS:
+			teleportEnding.writeTo(out, true);
+			break;
+		case Constants.VAR_NET_BOUNDING_BOX:
+			out.writeUnsignedByte(Constants.TYPE_BOUNDINGBOX);
+			out.writeDouble(0);
+			out.writeDouble(-LANE_SPACING / 2);
+			out.writeDouble(scenario.getLaneLength());
+			out.writeDouble((scenario.getLaneCount() - 0.5) * LANE_SPACING);
+			break;
+		default:
+			throw unknownVariable(varID, "the simulation");
+		}
+	}
+
+	private void writeVehicleVariable(String vehicleID, int varID, Storage out) {
+		if (writeIDVariable(new StringList(getVehicleIDs()), varID, out))
+			return;
+
+		Vehicle v = vehicles.get(vehicleID);
+		if (v == null)
+			throw new IllegalArgumentException("Vehicle '" + vehicleID + "' is not known");
+
+		switch (varID) {
+		case Constants.VAR_SPEED:
+			writeDouble(v.speed, out);
+			break;
+		case Constants.VAR_POSITION:
+			out.writeUnsignedByte(Constants.POSITION_2D);
+			out.writeDouble(v.pos);
+			out.writeDouble(v.lane * LANE_SPACING);
+			break;
+		case Constants.VAR_ANGLE:
+			writeDouble(90, out);
+			break;
+		case Constants.VAR_LANEPOSITION:
+			writeDouble(v.pos, out);
+			break;
+		case Constants.VAR_LANE_INDEX:
+			writeInt(0, out);
+			break;
+		case Constants.VAR_LANE_ID:
+			writeString(laneIDs.get(v.lane), out);
+			break;
+		case Constants.VAR_ROAD_ID:
+			writeString(edgeIDs.get(v.lane), out);
+			break;
+		case Constants.VAR_TYPE:
+			writeString(VEHICLE_TYPE, out);
+			break;
+		default:
+			throw unknownVariable(varID, vehicleID);
+		}
+	}
+
+	private void writeLaneVariable(String laneID, int varID, Storage out) {
+		if (writeIDVariable(laneIDs, varID, out))
+			return;
+
+		int lane = laneIDs.indexOf(laneID);
+		if (lane < 0)
+			throw new IllegalArgumentException("Lane '" + laneID + "' is not known");
+
+		switch (varID) {
+		case Constants.VAR_LENGTH:
+			writeDouble(scenario.getLaneLength(), out);
+			break;
+		case Constants.VAR_MAXSPEED:
+			writeDouble(scenario.getLaneMaxSpeed(), out);
+			break;
+		case Constants.VAR_WIDTH:
+			writeDouble(LANE_SPACING, out);
+			break;
+		case Constants.VAR_SHAPE:
+			out.writeUnsignedByte(Constants.TYPE_POLYGON);
+			out.writeUnsignedByte(2);
+			out.writeDouble(0);
+			out.writeDouble(lane * LANE_SPACING);
+			out.writeDouble(scenario.getLaneLength());
+			out.writeDouble(lane * LANE_SPACING);
+			break;
+		case Constants.LANE_EDGE_ID:
+			writeString(edgeIDs.get(lane), out);
+			break;
+		case Constants.LAST_STEP_VEHICLE_NUMBER:
+			writeInt(laneOccupancy[lane], out);
+			break;
+		default:
+			throw unknownVariable(varID, laneID);
+		}
+	}
+
+	private void writeEdgeVariable(String edgeID, int varID, Storage out) {
+		if (writeIDVariable(edgeIDs, varID, out))
+			return;
+
+		int edge = edgeIDs.indexOf(edgeID);
+		if (edge < 0)
+			throw new IllegalArgumentException("Edge '" + edgeID + "' is not known");
+
+		switch (varID) {
+		case Constants.LAST_STEP_VEHICLE_NUMBER:
+			writeInt(laneOccupancy[edge], out);
+			break;
+		default:
+			throw unknownVariable(varID, edgeID);
+		}
+	}
+
+	private void writeTrafficLightVariable(String tlID, int varID, Storage out) {
+		if (writeIDVariable(trafficLightIDs, varID, out))
+			return;
+
+		if (!trafficLightIDs.contains(tlID))
+			throw new IllegalArgumentException("Traffic light '" + tlID + "' is not known");
+
+		int phaseSteps = scenario.getPhaseSteps();
+		int cycle = step / phaseSteps;
+		switch (varID) {
+		case Constants.TL_RED_YELLOW_GREEN_STATE:
+			writeString(PHASES[cycle % PHASES.length], out);
+			break;
+		case Constants.TL_CURRENT_PHASE:
+			writeInt(cycle % PHASES.length, out);
+			break;
+		case Constants.TL_CURRENT_PROGRAM:
+			writeString("0", out);
+			break;
+		case Constants.TL_PHASE_DURATION:
+			writeInt(phaseSteps * scenario.getStepLength(), out);
+			break;
+		case Constants.TL_NEXT_SWITCH:
+			writeInt(scenario.getBeginTime() + (cycle + 1) * phaseSteps * scenario.getStepLength(), out);
+			break;
+		default:
+			throw unknownVariable(varID, tlID);
+		}
+	}
+
+	private static IllegalArgumentException unknownVariable(int varID, String objectID) {
+		return new IllegalArgumentException("variable 0x" + Integer.toHexString(varID)
+				+ " of " + objectID + " is not supported");
+	}
+
+	private static void writeInt(int value, Storage out) {
+		out.writeUnsignedByte(Constants.TYPE_INTEGER);
+		out.writeInt(value);
+	}
+
+	private static void writeDouble(double value, Storage out) {
+		out.writeUnsignedByte(Constants.TYPE_DOUBLE);
+		out.writeDouble(value);
+	}
+
+	private static void writeString(String value, Storage out) {
+		out.writeUnsignedByte(Constants.TYPE_STRING);
+		out.writeStringASCII(value);
+	}
+}
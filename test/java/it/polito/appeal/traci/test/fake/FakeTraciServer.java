@@ -0,0 +1,405 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test.fake;
+
+import it.polito.appeal.traci.protocol.Command;
+import it.polito.appeal.traci.protocol.Constants;
+import it.polito.appeal.traci.protocol.StatusResponse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.uniluebeck.itm.tcpip.Storage;
+
+/**
+ * An in-process TraCI server that simulates a {@link FakeScenario} instead of
+ * a real road network. It allows to test and benchmark the client, even with
+ * huge numbers of vehicles, where no SUMO binary is available.
+ * <p>
+ * The server listens on an ephemeral port of the loopback interface, and
+ * serves each client in its own thread with its own {@link FakeSimulation}:
+ * a {@link it.polito.appeal.traci.SumoTraciConnection} connects to it with
+ * its remote constructor.
+ * <p>
+ * It supports simulation steps, closing, reading the variables listed in
+ * {@link FakeSimulation} and subscribing to them. Every other command is
+ * answered with {@link Constants#RTYPE_NOTIMPLEMENTED}.
+ *
+ * @author Enrico Gueli &lt;enrico.gueli@polito.it&gt;
+ *
+ */
+public class FakeTraciServer implements Closeable {
+
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * Distance between the ID of a "get variable" command and the ID of the
+	 * corresponding "subscribe variable" command.
+	 */
+	private static final int GET_TO_SUBSCRIBE_OFFSET = 0x30;
+
+	/**
+	 * Distance between the ID of a command and the ID of its response.
+	 */
+	private static final int COMMAND_TO_RESPONSE_OFFSET = 0x10;
+
+	private final FakeScenario scenario;
+
+	private final ServerSocket serverSocket;
+
+	private final List<Socket> clients = new ArrayList<Socket>();
+
+	private Thread acceptThread;
+
+	private int acceptedCount = 0;
+
+	/**
+	 * Opens the server socket. Clients are not accepted until
+	 * {@link #start()} is called.
+	 *
+	 * @param scenario
+	 * @throws IOException
+	 */
+	public FakeTraciServer(FakeScenario scenario) throws IOException {
+		this.scenario = scenario;
+		serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+	}
+
+	/**
+	 * @return the address the server listens on
+	 */
+	public InetAddress getAddress() {
+		return serverSocket.getInetAddress();
+	}
+
+	/**
+	 * @return the TCP port the server listens on
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return the number of clients accepted so far
+	 */
+	public synchronized int getAcceptedCount() {
+		return acceptedCount;
+	}
+
+	/**
+	 * Starts accepting clients in a background thread.
+	 */
+	public synchronized void start() {
+		if (acceptThread != null)
+			throw new IllegalStateException("already started");
+
+		acceptThread = new Thread("fake TraCI server on port " + getPort()) {
+			@Override
+			public void run() {
+				acceptClients();
+			}
+		};
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	private void acceptClients() {
+		while (!serverSocket.isClosed()) {
+			final Socket socket;
+			final int clientNumber;
+			try {
+				socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+			} catch (IOException e) {
+				if (!serverSocket.isClosed())
+					log.error("can't accept clients", e);
+				return;
+			}
+
+			synchronized (this) {
+				clients.add(socket);
+				clientNumber = acceptedCount++;
+			}
+
+			Thread clientThread = new Thread("fake TraCI client " + clientNumber) {
+				@Override
+				public void run() {
+					try {
+						serve(socket);
+					} catch (EOFException e) {
+						log.debug("client " + clientNumber + " disconnected");
+					} catch (SocketException e) {
+						log.debug("client " + clientNumber + " disconnected", e);
+					} catch (IOException e) {
+						log.error("error while serving client " + clientNumber, e);
+					} finally {
+						closeClient(socket);
+					}
+				}
+			};
+			clientThread.setDaemon(true);
+			clientThread.start();
+		}
+	}
+
+	/**
+	 * Stops accepting clients and disconnects the current ones.
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		List<Socket> toClose;
+		synchronized (this) {
+			toClose = new ArrayList<Socket>(clients);
+		}
+		for (Socket socket : toClose)
+			closeClient(socket);
+	}
+
+	private void closeClient(Socket socket) {
+		synchronized (this) {
+			clients.remove(socket);
+		}
+		try {
+			socket.close();
+		} catch (IOException e) {
+			log.debug("can't close client socket", e);
+		}
+	}
+
+	private void serve(Socket socket) throws IOException {
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		ClientSession session = new ClientSession(new FakeSimulation(scenario));
+
+		Storage out = new Storage();
+		while (true) {
+			int totalLen = dis.readInt() - Integer.SIZE / 8;
+			byte[] buffer = new byte[totalLen];
+			dis.readFully(buffer);
+			Storage in = Storage.wrap(buffer, 0, totalLen);
+
+			out.reset();
+			boolean closing = false;
+			while (in.validPos()) {
+				Command cmd = new Command(in);
+				closing |= session.handle(cmd, out);
+			}
+
+			dos.writeInt(Integer.SIZE / 8 + out.size());
+			out.writeTo(dos);
+			dos.flush();
+
+			if (closing)
+				return;
+		}
+	}
+
+	/**
+	 * Answers the commands of a client, and keeps track of its subscriptions.
+	 */
+	private static class ClientSession {
+
+		private final FakeSimulation sim;
+
+		/**
+		 * Variable subscriptions, by "subscribe" command ID and then by object
+		 * ID.
+		 */
+		private final Map<Integer, Map<String, Subscription>> subscriptions = new LinkedHashMap<Integer, Map<String, Subscription>>();
+
+		ClientSession(FakeSimulation sim) {
+			this.sim = sim;
+		}
+
+		/**
+		 * Writes the response to a command.
+		 *
+		 * @param cmd
+		 * @param out
+		 * @return <code>true</code> if the client asked to close the
+		 *         connection
+		 */
+		boolean handle(Command cmd, Storage out) {
+			int id = cmd.id();
+			Storage content = cmd.content();
+
+			switch (id) {
+			case Constants.CMD_GETVERSION:
+				writeOK(id, out);
+				Command version = new Command(id);
+				version.content().writeInt(Constants.TRACI_VERSION);
+				version.content().writeStringASCII("TraCI4J fake server");
+				version.writeRawTo(out);
+				return false;
+
+			case Constants.CMD_SIMSTEP2:
+				sim.advanceTo(content.readInt());
+				writeOK(id, out);
+				writeSubscriptions(out);
+				return false;
+
+			case Constants.CMD_CLOSE:
+				writeOK(id, out);
+				return true;
+			}
+
+			if (isGetVariable(id))
+				getVariable(id, content, out);
+			else if (isGetVariable(id - GET_TO_SUBSCRIBE_OFFSET))
+				subscribe(id, content, out);
+			else
+				new StatusResponse(id, Constants.RTYPE_NOTIMPLEMENTED,
+						"not supported by the fake server").writeTo(out);
+			return false;
+		}
+
+		private static boolean isGetVariable(int id) {
+			return id >= Constants.CMD_GET_INDUCTIONLOOP_VARIABLE
+					&& id <= Constants.CMD_GET_LANE_AREA_DETECTOR_VARIABLE;
+		}
+
+		private static void writeOK(int id, Storage out) {
+			new StatusResponse(id, Constants.RTYPE_OK, "").writeTo(out);
+		}
+
+		private void getVariable(int id, Storage content, Storage out) {
+			int varID = content.readUnsignedByte();
+			String objectID = content.readStringASCII();
+
+			Command resp = new Command(id + COMMAND_TO_RESPONSE_OFFSET);
+			resp.content().writeUnsignedByte(varID);
+			resp.content().writeStringASCII(objectID);
+			try {
+				sim.writeVariable(id, objectID, varID, resp.content());
+			} catch (IllegalArgumentException e) {
+				new StatusResponse(id, Constants.RTYPE_ERR, e.getMessage()).writeTo(out);
+				return;
+			}
+			writeOK(id, out);
+			resp.writeRawTo(out);
+		}
+
+		private void subscribe(int id, Storage content, Storage out) {
+			Subscription sub = new Subscription();
+			sub.beginTime = content.readInt();
+			sub.endTime = content.readInt();
+			String objectID = content.readStringASCII();
+			int varCount = content.readUnsignedByte();
+			sub.varIDs = new int[varCount];
+			for (int i = 0; i < varCount; i++)
+				sub.varIDs[i] = content.readUnsignedByte();
+
+			Map<String, Subscription> byID = subscriptions.get(id);
+			if (varCount == 0) {
+				if (byID != null)
+					byID.remove(objectID);
+				writeOK(id, out);
+				return;
+			}
+
+			if (!sim.hasObject(id - GET_TO_SUBSCRIBE_OFFSET, objectID)) {
+				new StatusResponse(id, Constants.RTYPE_ERR, "object " + objectID
+						+ " is not known").writeTo(out);
+				return;
+			}
+
+			if (byID == null) {
+				byID = new LinkedHashMap<String, Subscription>();
+				subscriptions.put(id, byID);
+			}
+			byID.put(objectID, sub);
+
+			writeOK(id, out);
+			subscriptionResponse(id, objectID, sub).writeRawTo(out);
+		}
+
+		/**
+		 * Writes the number of subscription responses of the last step,
+		 * followed by the responses. The subscriptions of objects that left
+		 * the simulation are dropped.
+		 */
+		private void writeSubscriptions(Storage out) {
+			List<Command> responses = new ArrayList<Command>();
+			for (Map.Entry<Integer, Map<String, Subscription>> entry : subscriptions.entrySet()) {
+				int id = entry.getKey();
+				for (Iterator<Map.Entry<String, Subscription>> it = entry.getValue().entrySet().iterator(); it.hasNext();) {
+					Map.Entry<String, Subscription> sub = it.next();
+					if (!sim.hasObject(id - GET_TO_SUBSCRIBE_OFFSET, sub.getKey())
+							|| sim.getTime() > sub.getValue().endTime) {
+						it.remove();
+						continue;
+					}
+					if (sim.getTime() >= sub.getValue().beginTime)
+						responses.add(subscriptionResponse(id, sub.getKey(), sub.getValue()));
+				}
+			}
+
+			out.writeInt(responses.size());
+			for (Command resp : responses)
+				resp.writeRawTo(out);
+		}
+
+		private Command subscriptionResponse(int id, String objectID, Subscription sub) {
+			Command resp = new Command(id + COMMAND_TO_RESPONSE_OFFSET);
+			Storage content = resp.content();
+			content.writeStringASCII(objectID);
+			content.writeUnsignedByte(sub.varIDs.length);
+			Storage value = new Storage();
+			for (int varID : sub.varIDs) {
+				content.writeUnsignedByte(varID);
+				value.reset();
+				try {
+					sim.writeVariable(id - GET_TO_SUBSCRIBE_OFFSET, objectID, varID, value);
+					content.writeUnsignedByte(Constants.RTYPE_OK);
+					content.writeBytes(value);
+				} catch (IllegalArgumentException e) {
+					content.writeUnsignedByte(Constants.RTYPE_ERR);
+					content.writeUnsignedByte(Constants.TYPE_STRING);
+					content.writeStringASCII(e.getMessage());
+				}
+			}
+			return resp;
+		}
+	}
+
+	private static class Subscription {
+		int beginTime;
+		int endTime;
+		int[] varIDs;
+	}
+}
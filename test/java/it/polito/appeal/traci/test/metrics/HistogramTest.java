@@ -0,0 +1,82 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test.metrics;
+
+import static org.junit.Assert.*;
+import it.polito.appeal.traci.metrics.Histogram;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class HistogramTest {
+
+	@Test
+	public void testEmpty() {
+		Histogram h = new Histogram();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getMean(), 0);
+		assertEquals(0, h.getPercentile(99));
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		Histogram h = new Histogram();
+		h.record(1);
+		h.record(2);
+		h.record(3);
+		assertEquals(3, h.getCount());
+		assertEquals(6, h.getSum());
+		assertEquals(2, h.getMean(), 0);
+		assertEquals(1, h.getPercentile(0));
+		assertEquals(2, h.getPercentile(50));
+		assertEquals(3, h.getPercentile(100));
+	}
+
+	@Test
+	public void testPercentileError() {
+		Histogram h = new Histogram();
+		for (long v = 1; v <= 100000; v++)
+			h.record(v * 1000);
+		assertEquals(100000000, h.getMax());
+		long p50 = h.getPercentile(50);
+		assertTrue(p50 >= 50000000 && p50 <= 50000000 * 1.25);
+		long p99 = h.getPercentile(99);
+		assertTrue(p99 >= 99000000 && p99 <= h.getMax());
+	}
+
+	@Test
+	public void testExtremes() {
+		Histogram h = new Histogram();
+		h.record(-5);
+		h.record(Long.MAX_VALUE);
+		assertEquals(0, h.getPercentile(50));
+		assertEquals(Long.MAX_VALUE, h.getPercentile(100));
+	}
+
+	@Test
+	public void testReset() {
+		Histogram h = new Histogram();
+		h.record(42);
+		h.reset();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getMax());
+		assertEquals(0, h.getPercentile(50));
+	}
+}
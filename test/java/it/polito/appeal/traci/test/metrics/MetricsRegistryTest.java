@@ -0,0 +1,124 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test.metrics;
+
+import static org.junit.Assert.*;
+import it.polito.appeal.traci.MultiQuery;
+import it.polito.appeal.traci.SumoTraciConnection;
+import it.polito.appeal.traci.Vehicle;
+import it.polito.appeal.traci.metrics.Metrics;
+import it.polito.appeal.traci.metrics.MetricsRegistry;
+import it.polito.appeal.traci.protocol.Constants;
+import it.polito.appeal.traci.test.fake.FakeScenario;
+import it.polito.appeal.traci.test.fake.FakeTraciServer;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class MetricsRegistryTest {
+
+	private FakeTraciServer server;
+
+	private SumoTraciConnection conn;
+
+	private MetricsRegistry registry;
+
+	@Before
+	public void setUp() throws Exception {
+		FakeScenario scenario = new FakeScenario();
+		scenario.setInitialVehicles(10);
+		server = new FakeTraciServer(scenario);
+		server.start();
+
+		registry = new MetricsRegistry();
+		Metrics.setListener(registry);
+		conn = new SumoTraciConnection(server.getAddress(), server.getPort());
+		registry.reset();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Metrics.setListener(null);
+		conn.close();
+		server.close();
+	}
+
+	@Test
+	public void testStepsAndReads() throws Exception {
+		Vehicle v = conn.getVehicleRepository().getByID("veh0");
+		v.queryReadSpeed().get();
+		v.queryReadSpeed().get();
+		assertEquals(1, registry.getReadCacheHits());
+		assertEquals(1, registry.getReadCacheMisses());
+		assertEquals(0.5, registry.getReadCacheHitRatio(), 0);
+		assertEquals(1, registry.getCommandLatency(Constants.CMD_GET_VEHICLE_VARIABLE).getCount());
+
+		for (int i = 0; i < 5; i++)
+			conn.nextSimStep();
+
+		assertEquals(5, registry.getSteps());
+		assertEquals(5, registry.getCommandLatency(Constants.CMD_SIMSTEP2).getCount());
+		assertEquals(5, registry.getListenerTime().getCount());
+		assertEquals(6, registry.getQueriesPerStep().getSum());
+		assertEquals(6, registry.getMessagesSent());
+		assertEquals(6, registry.getMessagesReceived());
+		assertEquals(6, registry.getParseTime().getCount());
+		assertEquals(6, registry.getRoundTripTime().getCount());
+		assertTrue(registry.getBytesSent() > 0);
+		assertTrue(registry.getBytesReceived() > 0);
+		assertEquals(2, registry.getCommandLatencies().length);
+		assertTrue(registry.getCommandLatencies()[0].startsWith("0x02: count=5"));
+	}
+
+	@Test
+	public void testMixedCommands() throws Exception {
+		Vehicle v = conn.getVehicleRepository().getByID("veh0");
+		MultiQuery multi = conn.makeMultiQuery();
+		multi.add(v.queryReadSpeed());
+		multi.add(conn.getSimulationData().queryCurrentSimTime());
+		multi.run();
+
+		assertEquals(1, registry.getRoundTripTime().getCount());
+		assertNull(registry.getCommandLatency(Constants.CMD_GET_VEHICLE_VARIABLE));
+		assertNull(registry.getCommandLatency(Constants.CMD_GET_SIM_VARIABLE));
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+		ObjectName name = new ObjectName(MetricsRegistry.DEFAULT_OBJECT_NAME + ",name=test");
+		registry.registerMBean(name);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			conn.nextSimStep();
+			assertEquals(1L, server.getAttribute(name, "Steps"));
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "Steps"));
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+}
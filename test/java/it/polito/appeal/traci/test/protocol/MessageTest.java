@@ -24,6 +24,7 @@ import static org.junit.Assert.*;
 import it.polito.appeal.traci.protocol.Command;
 import it.polito.appeal.traci.protocol.RequestMessage;
 import it.polito.appeal.traci.protocol.ResponseMessage;
+import it.polito.appeal.traci.protocol.StatusResponse;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -31,6 +32,8 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
+import de.uniluebeck.itm.tcpip.Storage;
+
 import org.junit.Test;
 
 @SuppressWarnings("javadoc")
@@ -52,6 +55,52 @@ public class MessageTest {
 		new ResponseMessage(dis);
 	}
 
+	@Test
+	public void testResponseCommandContent() throws IOException {
+		ByteArrayInputStream bais =
+			new ByteArrayInputStream(new byte[] {
+					0, 0, 0, 31, // msg len
+					7,           // status resp len
+					(byte) 0xA4, // status id
+					0,           // status code
+					0, 0, 0, 0,  // status descr len
+					0,           // resp len 0...
+					0, 0, 0, 10, // ...then extended length
+					(byte) 0xB4, // resp code
+					0, 0, 0, 42, // resp content
+					7,           // status resp len
+					(byte) 0xA4, // status id
+					0,           // status code
+					0, 0, 0, 0,  // status descr len
+					3,           // resp len
+					(byte) 0xB4, // resp code
+					5            // resp content
+					});
+		DataInputStream dis = new DataInputStream(bais);
+		ResponseMessage msg = new ResponseMessage(dis);
+		assertEquals(2, msg.responses().size());
+
+		Command first = msg.responses().get(0).getResponse();
+		assertEquals(0xB4, first.id());
+		assertEquals(4, first.content().size());
+		assertEquals(42, first.content().readInt());
+
+		Command second = msg.responses().get(1).getResponse();
+		assertEquals(1, second.content().size());
+		assertEquals(5, second.content().readByte());
+	}
+
+	@Test
+	public void testStatusResponseRoundTrip() throws IOException {
+		Storage s = new Storage();
+		new StatusResponse(0xA4, 0xFF, "error").writeTo(s);
+		StatusResponse sr = new StatusResponse(s);
+		assertEquals(0xA4, sr.id());
+		assertEquals(0xFF, sr.result());
+		assertEquals("error", sr.description());
+		assertFalse(s.validPos());
+	}
+
 	@Test
 	public void testRequestMessage() {
 		new RequestMessage();
@@ -83,4 +132,31 @@ public class MessageTest {
 		assertEquals(10, dis.readInt());
 	}
 
+	@Test
+	public void testConsecutiveWriteTo() throws IOException {
+		RequestMessage big = new RequestMessage();
+		Command cmd1 = new Command(0xAA);
+		cmd1.content().writeInt(0x12345678);
+		big.append(cmd1);
+		big.append(new Command(0xBB));
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		big.writeTo(new DataOutputStream(baos));
+		assertArrayEquals(new byte[] {
+				0, 0, 0, 20,
+				0, 0, 0, 0, 10, (byte) 0xAA, 0x12, 0x34, 0x56, 0x78,
+				0, 0, 0, 0, 6, (byte) 0xBB
+			}, baos.toByteArray());
+
+		RequestMessage small = new RequestMessage();
+		small.append(new Command(0xCC));
+
+		baos = new ByteArrayOutputStream();
+		small.writeTo(new DataOutputStream(baos));
+		assertArrayEquals(new byte[] {
+				0, 0, 0, 10,
+				0, 0, 0, 0, 6, (byte) 0xCC
+			}, baos.toByteArray());
+	}
+
 }
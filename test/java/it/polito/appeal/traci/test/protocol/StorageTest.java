@@ -0,0 +1,219 @@
+/*
+    Copyright (C) 2026 ApPeAL Group, Politecnico di Torino
+
+    This file is part of TraCI4J.
+
+    TraCI4J is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TraCI4J is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TraCI4J.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package it.polito.appeal.traci.test.protocol;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import de.uniluebeck.itm.tcpip.Storage;
+import de.uniluebeck.itm.tcpip.StringPool;
+
+@SuppressWarnings("javadoc")
+public class StorageTest {
+
+	@Test
+	public void testScalarsRoundTrip() {
+		Storage s = new Storage(1); // forces several growths
+		s.writeByte(-5);
+		s.writeUnsignedByte(200);
+		s.writeShort(-1234);
+		s.writeInt(0x12345678);
+		s.writeInt(-1);
+		s.writeFloat(3.5f);
+		s.writeDouble(-123.456);
+		s.writeStringASCII("veh0");
+		s.writeStringUTF8("è");
+
+		assertEquals(-5, s.readByte());
+		assertEquals(200, s.readUnsignedByte());
+		assertEquals(-1234, s.readShort());
+		assertEquals(0x12345678, s.readInt());
+		assertEquals(-1, s.readInt());
+		assertEquals(3.5f, s.readFloat(), 0);
+		assertEquals(-123.456, s.readDouble(), 0);
+		assertEquals("veh0", s.readStringASCII());
+		assertEquals("è", s.readStringUTF8());
+		assertFalse(s.validPos());
+	}
+
+	@Test
+	public void testNonASCIIStringLength() {
+		/*
+		 * the length prefix counts the encoded bytes, not the characters,
+		 * so that the reader knows how many bytes to decode
+		 */
+		Storage s = new Storage();
+		s.writeStringUTF8("città");
+		s.writeStringUTF16BE("città");
+		s.writeStringISOLATIN1("città");
+
+		assertEquals(6, s.readInt());
+		s.skipBytes(6);
+		assertEquals(10, s.readInt());
+		s.skipBytes(10);
+		assertEquals(5, s.readInt());
+		s.skipBytes(5);
+		assertFalse(s.validPos());
+
+		s = new Storage();
+		s.writeStringUTF8("città");
+		s.writeStringUTF16BE("città");
+		s.writeStringISOLATIN1("città");
+		assertEquals("città", s.readStringUTF8());
+		assertEquals("città", s.readStringUTF16BE());
+		assertEquals("città", s.readStringISOLATIN1());
+	}
+
+	@Test
+	public void testBigEndianLayout() {
+		Storage s = new Storage();
+		s.writeInt(0x01020304);
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, s.readBytes(4));
+	}
+
+	@Test
+	public void testOffsetConstructor() {
+		byte[] buf = new byte[] { 9, 9, 0, 0, 0, 7, 9 };
+		Storage s = new Storage(buf, 2, 4);
+		assertEquals(4, s.size());
+		assertEquals(7, s.readInt());
+		assertFalse(s.validPos());
+	}
+
+	@Test
+	public void testSliceSharesData() {
+		Storage s = new Storage();
+		s.writeInt(1);
+		s.writeInt(2);
+		s.writeInt(3);
+		assertEquals(1, s.readInt());
+
+		Storage slice = s.slice(4);
+		assertEquals(8, s.position());
+		assertEquals(4, slice.size());
+		assertEquals(2, slice.readInt());
+		assertEquals(3, s.readInt());
+	}
+
+	@Test
+	public void testWritingDoesNotAlterSharedData() {
+		byte[] buf = new byte[] { 0, 0, 0, 1, 0, 0, 0, 2 };
+		Storage wrapped = Storage.wrap(buf, 0, 4);
+		wrapped.writeInt(42);
+		assertEquals(2, buf[7]);
+		assertEquals(1, wrapped.readInt());
+		assertEquals(42, wrapped.readInt());
+
+		Storage parent = new Storage(buf);
+		Storage slice = parent.slice(4);
+		slice.writeInt(42);
+		parent.writeInt(43);
+		assertEquals(2, parent.readInt());
+		assertEquals(43, parent.readInt());
+		assertEquals(1, slice.readInt());
+		assertEquals(42, slice.readInt());
+	}
+
+	@Test
+	public void testSkipBytes() {
+		Storage s = new Storage();
+		s.writeStringASCII("veh0");
+		s.writeInt(7);
+		s.skipBytes(s.readInt());
+		assertEquals(7, s.readInt());
+	}
+
+	@Test
+	public void testMatchStringASCII() {
+		Storage s = new Storage();
+		s.writeStringASCII("veh0");
+		s.writeInt(7);
+		assertFalse(s.matchStringASCII("veh1"));
+		assertFalse(s.matchStringASCII("veh"));
+		assertEquals(0, s.position());
+		assertTrue(s.matchStringASCII("veh0"));
+		assertEquals(7, s.readInt());
+	}
+
+	@Test
+	public void testReadStringASCIIPooled() {
+		StringPool pool = new StringPool(4);
+		Storage s = new Storage();
+		s.writeStringASCII("lane0");
+		s.writeStringASCII("lane0");
+		s.writeStringASCII("lane1");
+		String first = s.readStringASCII(pool);
+		assertEquals("lane0", first);
+		assertSame(first, s.readStringASCII(pool));
+		assertEquals("lane1", s.readStringASCII(pool));
+		assertFalse(s.validPos());
+
+		String interned = pool.intern(new String("lane1"));
+		assertSame(interned, pool.intern(new String("lane1")));
+	}
+
+	@Test
+	public void testNonASCIIBytesDecodeAlike() {
+		byte[] id = new byte[] { 'e', (byte) 0xE8, '_', '0' };
+		Storage s = new Storage();
+		for (int i = 0; i < 3; i++) {
+			s.writeInt(id.length);
+			s.writeBytes(id);
+		}
+
+		String plain = s.readStringASCII();
+		assertEquals("e\uFFFD_0", plain);
+		assertEquals(plain, s.readStringASCII(new StringPool(4)));
+		assertTrue(s.matchStringASCII(plain));
+		assertFalse(s.validPos());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReadPastEnd() {
+		Storage s = new Storage(new byte[] { 0, 0, 0 });
+		s.readInt();
+	}
+
+	@Test
+	public void testWriteTo() throws IOException {
+		Storage s = new Storage();
+		s.writeBytes(new byte[] { 1, 2, 3 });
+		s.readByte();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		s.writeTo(baos);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, baos.toByteArray());
+	}
+
+	@Test
+	public void testReset() {
+		Storage s = new Storage();
+		s.writeInt(5);
+		s.readInt();
+		s.reset();
+		assertEquals(0, s.size());
+		assertEquals(0, s.position());
+		s.writeInt(6);
+		assertEquals(6, s.readInt());
+	}
+}